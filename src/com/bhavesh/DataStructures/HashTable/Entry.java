@@ -0,0 +1,29 @@
+/*
+ * An entry of the separate chaining hash tables, holding a key, its value and the cached
+ * hash code of the key
+ */
+
+package com.bhavesh.DataStructures.HashTable;
+
+class Entry<K, V> {
+    int hash;
+    K key;
+    V value;
+
+    public Entry(K key, V value) {
+        this.key = key;
+        this.value = value;
+        this.hash = key.hashCode();
+    }
+
+    public boolean equals(Entry<K, V> other) {
+        if (hash != other.hash)
+            return false;
+        return key.equals(other.key);
+    }
+
+    @Override
+    public String toString() {
+        return key + " => " + value;
+    }
+}
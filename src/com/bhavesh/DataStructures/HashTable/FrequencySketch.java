@@ -0,0 +1,88 @@
+/*
+ * A count-min sketch estimating how often keys have been accessed, used by
+ * HashTableBoundedCache to decide which keys are worth admitting (TinyLFU)
+ *
+ * Every key hash maps to four 4 bit counters, one per row, packed 16 to a long. The
+ * estimated frequency of a key is the smallest of its counters, so collisions can only
+ * ever overestimate it. Once the number of increments reaches the sample size all the
+ * counters are halved, which lets the sketch forget keys that used to be popular.
+ */
+
+package com.bhavesh.DataStructures.HashTable;
+
+class FrequencySketch {
+
+    // The counters saturate at 15
+    private static final int MAX_COUNT = 15;
+
+    // Clears the top bit of every counter after a shift to halve them all at once
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    // One seed per row, so that the four counters of a key are chosen independently
+    private static final long[] SEEDS = {
+            0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L
+    };
+
+    private final long[] table;
+    private final int tableMask, sampleSize;
+    private int additions;
+
+    // Creates a sketch suited to track the keys of a cache holding maximumSize keys
+    FrequencySketch(int maximumSize) {
+        int longs = nextPowerOfTwo(Math.max(1, maximumSize));
+        table = new long[longs];
+        tableMask = longs - 1;
+        sampleSize = 10 * Math.max(1, maximumSize);
+    }
+
+    // Returns the smallest power of two greater than or equal to n
+    private static int nextPowerOfTwo(int n) {
+        int pow2 = Integer.highestOneBit(n);
+        return pow2 == n ? n : pow2 << 1;
+    }
+
+    // Returns the estimated number of recent accesses of the key with the given hash
+    int frequency(int hash) {
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long h = mix(hash, row);
+            int shift = counterOffset(h);
+            frequency = Math.min(frequency, (int) (table[counterIndex(h)] >>> shift) & MAX_COUNT);
+        }
+        return frequency;
+    }
+
+    // Records an access of the key with the given hash
+    void increment(int hash) {
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long h = mix(hash, row);
+            int index = counterIndex(h), shift = counterOffset(h);
+            if (((table[index] >>> shift) & MAX_COUNT) != MAX_COUNT) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) reset();
+    }
+
+    // Halves every counter
+    private void reset() {
+        for (int i = 0; i < table.length; i++) table[i] = (table[i] >>> 1) & RESET_MASK;
+        additions /= 2;
+    }
+
+    private static long mix(int hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        return h ^ (h >>> 32);
+    }
+
+    private int counterIndex(long h) {
+        return (int) h & tableMask;
+    }
+
+    // The top 4 bits pick one of the 16 counters of the long
+    private static int counterOffset(long h) {
+        return (int) (h >>> 60) << 2;
+    }
+}
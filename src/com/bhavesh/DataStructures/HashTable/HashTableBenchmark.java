@@ -0,0 +1,483 @@
+/*
+ * A simple benchmark comparing the lookup speed of the open addressing hash tables
+ * with the default (prime/odd capacity, modulo indexing) and the power of two mode
+ * (power of two capacity, Fibonacci hashing and bit masking), and comparing the
+ * tables at a high load factor with the group probing of HashTableSwiss, comparing
+ * single lookups with batched lookups through getAll(), comparing hopscotch hashing
+ * with double hashing at a load above 90%, measuring how many kicks cuckoo hashing
+ * needs at increasing load factors, measuring how the CAS based long to long table
+ * and the lock striped table scale with the number of threads, comparing rebuilding
+ * a table by inserting every key with loading it from a snapshot, and comparing filling
+ * a growing table with filling a pre-sized one or building it from arrays
+ *
+ * Numbers from a main method are only a rough guide, every measurement is repeated
+ * a few times so that the JIT compiler has warmed up before the last round.
+ */
+
+package com.bhavesh.DataStructures.HashTable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+public class HashTableBenchmark {
+
+    private static final int KEY_COUNT = 1_000_000;
+    private static final int LOOKUPS = 10_000_000;
+    private static final int ROUNDS = 5;
+
+    // The high load comparison fills a table of HIGH_LOAD_CAPACITY slots to about 86%
+    private static final int HIGH_LOAD_CAPACITY = 1 << 20;
+    private static final int HIGH_LOAD_KEY_COUNT = 900_000;
+    private static final double HIGH_LOAD_FACTOR = 0.9;
+
+    // The batch comparison looks up BATCH_LENGTH keys per getAll() call
+    private static final int BATCH_LENGTH = 4096;
+
+    // The hopscotch comparison fills HIGH_LOAD_CAPACITY slots to about 93%
+    private static final int HOPSCOTCH_KEY_COUNT = 975_000;
+    private static final double HOPSCOTCH_LOAD_FACTOR = 0.95;
+
+    // The cuckoo comparison fills HIGH_LOAD_CAPACITY slots up to each of these load factors
+    private static final double[] CUCKOO_LOAD_FACTORS = {0.8, 0.9, 0.95};
+
+    // The concurrent comparison runs CONCURRENT_OPERATIONS operations per thread over
+    // CONCURRENT_KEY_COUNT keys, 90% of them gets, 5% puts and 5% removes
+    private static final int CONCURRENT_KEY_COUNT = 1 << 20;
+    private static final int CONCURRENT_OPERATIONS = 5_000_000;
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8};
+
+    // One operation of the concurrent comparison, operations 0 to 17
+    // are gets, 18 is a put and 19 a remove
+    interface ConcurrentOperation {
+        long run(long key, int operation);
+    }
+
+    // A key with an identity style hashCode, the kind of key that
+    // suffers most from a weak index function
+    static class Key implements SecondaryHash {
+        final int id;
+
+        Key(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+
+        @Override
+        public int hashCode2() {
+            return id * 31 + 17;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id;
+        }
+    }
+
+    // Builds keys spaced by a power of two stride, which clusters badly under masking
+    // without spreading and is harmless for modulo with an odd capacity
+    static Key[] createKeys(int n) {
+        Key[] keys = new Key[n];
+        for (int i = 0; i < n; i++) keys[i] = new Key(i << 6);
+        return keys;
+    }
+
+    // Builds keys with distinct random ids, so that no index function gets an
+    // unrealistically even spread from a regular key pattern
+    static Key[] createRandomKeys(int n) {
+        Random random = new Random(7);
+        Set<Integer> ids = new HashSet<>();
+        Key[] keys = new Key[n];
+        for (int i = 0; i < n; ) {
+            int id = random.nextInt();
+            if (ids.add(id)) keys[i++] = new Key(id);
+        }
+        return keys;
+    }
+
+    // Creates a random lookup order so that lookups do not simply walk the table
+    static int[] createLookupOrder(int n, int lookups) {
+        Random random = new Random(42);
+        int[] order = new int[lookups];
+        for (int i = 0; i < lookups; i++) order[i] = random.nextInt(n);
+        return order;
+    }
+
+    // Returns the average time in nanoseconds of a single lookup in the last round
+    static double timeLookups(Function<Key, Integer> get, Key[] keys, int[] order) {
+        double nanosPerLookup = 0;
+        long checksum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i : order) checksum += get.apply(keys[i]);
+            nanosPerLookup = (double) (System.nanoTime() - start) / order.length;
+        }
+
+        // Print the checksum so the lookups cannot be optimized away
+        if (checksum == 42) System.out.println(checksum);
+        return nanosPerLookup;
+    }
+
+    static double timeLookups(Supplier<HashTableOpenAddressingBase<Key, Integer>> factory,
+                              Key[] keys, int[] order) {
+        HashTableOpenAddressingBase<Key, Integer> table = factory.get();
+        for (int i = 0; i < keys.length; i++) table.put(keys[i], i);
+        return timeLookups(table::get, keys, order);
+    }
+
+    // Returns the average time of a lookup for a key which is not in the table
+    static double timeMisses(Function<Key, Integer> get, Key[] missingKeys, int[] order) {
+        return timeLookups(key -> get.apply(key) == null ? 1 : 0, missingKeys, order);
+    }
+
+    static void compare(String name, Supplier<HashTableOpenAddressingBase<Key, Integer>> modulo,
+                        Supplier<HashTableOpenAddressingBase<Key, Integer>> powerOfTwo,
+                        Key[] keys, int[] order) {
+        double moduloTime = timeLookups(modulo, keys, order);
+        double powerOfTwoTime = timeLookups(powerOfTwo, keys, order);
+        System.out.printf("%-18s modulo: %6.1f ns/get   power of two: %6.1f ns/get   speedup: %.2fx%n",
+                name, moduloTime, powerOfTwoTime, moduloTime / powerOfTwoTime);
+    }
+
+    static void compareHighLoad(String name, Supplier<HashTableOpenAddressingBase<Key, Integer>> factory,
+                                double[] swissTimes, Key[] keys, Key[] missingKeys, int[] order) {
+        HashTableOpenAddressingBase<Key, Integer> table = factory.get();
+        for (int i = 0; i < keys.length; i++) table.put(keys[i], i);
+
+        double hitTime = timeLookups(table::get, keys, order);
+        double missTime = timeMisses(table::get, missingKeys, order);
+        System.out.printf("%-26s hit: %6.1f ns (%.2fx)   miss: %6.1f ns (%.2fx)%n",
+                name, hitTime, hitTime / swissTimes[0], missTime, missTime / swissTimes[1]);
+    }
+
+    static void highLoadBenchmark() {
+        Key[] allKeys = createRandomKeys(2 * HIGH_LOAD_KEY_COUNT);
+        Key[] keys = Arrays.copyOfRange(allKeys, 0, HIGH_LOAD_KEY_COUNT);
+        Key[] missingKeys = Arrays.copyOfRange(allKeys, HIGH_LOAD_KEY_COUNT, allKeys.length);
+        int[] order = createLookupOrder(HIGH_LOAD_KEY_COUNT, LOOKUPS);
+
+        HashTableSwiss<Key, Integer> swiss = new HashTableSwiss<>(HIGH_LOAD_CAPACITY, HIGH_LOAD_FACTOR);
+        for (int i = 0; i < keys.length; i++) swiss.put(keys[i], i);
+        double[] swissTimes = {timeLookups(swiss::get, keys, order), timeMisses(swiss::get, missingKeys, order)};
+
+        System.out.printf("%nLookups at load factor %.2f, times relative to the swiss table in brackets%n",
+                (double) HIGH_LOAD_KEY_COUNT / HIGH_LOAD_CAPACITY);
+        System.out.printf("%-26s hit: %6.1f ns           miss: %6.1f ns%n", "Swiss table", swissTimes[0], swissTimes[1]);
+
+        compareHighLoad("Linear probing",
+                () -> new HashTableLinearProbing<>(HIGH_LOAD_CAPACITY, HIGH_LOAD_FACTOR, false, true),
+                swissTimes, keys, missingKeys, order);
+
+        compareHighLoad("Linear probing Robin Hood",
+                () -> new HashTableLinearProbing<>(HIGH_LOAD_CAPACITY, HIGH_LOAD_FACTOR, true, true),
+                swissTimes, keys, missingKeys, order);
+
+        compareHighLoad("Quadratic probing",
+                () -> new HashTableQuadraticProbing<>(HIGH_LOAD_CAPACITY, HIGH_LOAD_FACTOR, true),
+                swissTimes, keys, missingKeys, order);
+
+        compareHighLoad("Double hashing",
+                () -> new HashTableDoubleHashing<>(HIGH_LOAD_CAPACITY, HIGH_LOAD_FACTOR, true),
+                swissTimes, keys, missingKeys, order);
+    }
+
+    static void batchBenchmark() {
+        Key[] keys = createRandomKeys(KEY_COUNT);
+        int[] order = createLookupOrder(KEY_COUNT, LOOKUPS);
+
+        HashTableLinearProbing<Key, Integer> table = new HashTableLinearProbing<>(KEY_COUNT, 0.65, false, true);
+        for (int i = 0; i < keys.length; i++) table.put(keys[i], i);
+
+        double singleTime = timeLookups(table::get, keys, order);
+
+        // Lay the lookups out in the batches handed to getAll() beforehand
+        Key[] batchKeys = new Key[order.length];
+        for (int i = 0; i < order.length; i++) batchKeys[i] = keys[order[i]];
+        Key[] batch = new Key[BATCH_LENGTH];
+        Integer[] results = new Integer[BATCH_LENGTH];
+
+        double batchTime = 0;
+        long checksum = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int from = 0; from + BATCH_LENGTH <= batchKeys.length; from += BATCH_LENGTH) {
+                System.arraycopy(batchKeys, from, batch, 0, BATCH_LENGTH);
+                table.getAll(batch, results);
+                for (Integer result : results) checksum += result;
+            }
+            batchTime = (double) (System.nanoTime() - start) / (batchKeys.length / BATCH_LENGTH * BATCH_LENGTH);
+        }
+        if (checksum == 42) System.out.println(checksum);
+
+        System.out.printf("%nLinear probing  get: %6.1f ns/key   getAll: %6.1f ns/key   speedup: %.2fx%n",
+                singleTime, batchTime, singleTime / batchTime);
+    }
+
+    static void hopscotchBenchmark() {
+        Key[] allKeys = createRandomKeys(2 * HOPSCOTCH_KEY_COUNT);
+        Key[] keys = Arrays.copyOfRange(allKeys, 0, HOPSCOTCH_KEY_COUNT);
+        Key[] missingKeys = Arrays.copyOfRange(allKeys, HOPSCOTCH_KEY_COUNT, allKeys.length);
+        int[] order = createLookupOrder(HOPSCOTCH_KEY_COUNT, LOOKUPS);
+
+        HashTableHopscotch<Key, Integer> hopscotch = new HashTableHopscotch<>(HIGH_LOAD_CAPACITY, HOPSCOTCH_LOAD_FACTOR);
+        for (int i = 0; i < keys.length; i++) hopscotch.put(keys[i], i);
+        double hopscotchHit = timeLookups(hopscotch::get, keys, order);
+        double hopscotchMiss = timeMisses(hopscotch::get, missingKeys, order);
+
+        HashTableDoubleHashing<Key, Integer> doubleHashing =
+                new HashTableDoubleHashing<>(HIGH_LOAD_CAPACITY, HOPSCOTCH_LOAD_FACTOR, true);
+        for (int i = 0; i < keys.length; i++) doubleHashing.put(keys[i], i);
+        double doubleHashingHit = timeLookups(doubleHashing::get, keys, order);
+        double doubleHashingMiss = timeMisses(doubleHashing::get, missingKeys, order);
+
+        System.out.printf("%nLookups at load factor %.2f (hopscotch) and %.2f (double hashing)%n",
+                (double) HOPSCOTCH_KEY_COUNT / hopscotch.getCapacity(),
+                (double) HOPSCOTCH_KEY_COUNT / doubleHashing.getCapacity());
+        System.out.printf("%-26s hit: %6.1f ns           miss: %6.1f ns%n", "Hopscotch", hopscotchHit, hopscotchMiss);
+        System.out.printf("%-26s hit: %6.1f ns (%.2fx)   miss: %6.1f ns (%.2fx)%n", "Double hashing",
+                doubleHashingHit, doubleHashingHit / hopscotchHit, doubleHashingMiss, doubleHashingMiss / hopscotchMiss);
+    }
+
+    static void cuckooBenchmark() {
+        Key[] allKeys = createRandomKeys(2 * HIGH_LOAD_CAPACITY);
+        Key[] missingKeys = Arrays.copyOfRange(allKeys, HIGH_LOAD_CAPACITY, allKeys.length);
+
+        System.out.printf("%nCuckoo hashing with %d slots%n", HIGH_LOAD_CAPACITY);
+        for (int hashFunctions = 2; hashFunctions <= 3; hashFunctions++) {
+            for (double loadFactor : CUCKOO_LOAD_FACTORS) {
+                // Stay just below the threshold so that the table does not grow
+                int keyCount = (int) (HIGH_LOAD_CAPACITY * loadFactor) - 1;
+                Key[] keys = Arrays.copyOfRange(allKeys, 0, keyCount);
+                int[] order = createLookupOrder(keyCount, LOOKUPS);
+
+                HashTableCuckoo<Key, Integer> cuckoo =
+                        new HashTableCuckoo<>(HIGH_LOAD_CAPACITY, loadFactor, hashFunctions);
+                for (int i = 0; i < keys.length; i++) cuckoo.put(keys[i], i);
+                double hitTime = timeLookups(cuckoo::get, keys, order);
+                double missTime = timeMisses(cuckoo::get, missingKeys, order);
+
+                System.out.printf("%d hash functions, load %.2f   kicks/insert: %5.2f   max kicks: %3d   stash: %d" +
+                                "   overflow: %d   resizes: %d   hit: %6.1f ns   miss: %6.1f ns%n",
+                        hashFunctions, (double) keyCount / cuckoo.getCapacity(), cuckoo.getAverageKicks(),
+                        cuckoo.getMaxKicks(), cuckoo.getStashSize(), cuckoo.overflowSize(), cuckoo.getResizeCount(),
+                        hitTime, missTime);
+            }
+        }
+    }
+
+    // Returns the throughput in millions of operations per second of the given number
+    // of threads running CONCURRENT_OPERATIONS random operations each
+    static double timeConcurrent(ConcurrentOperation operation, long[] keys, int threads) throws InterruptedException {
+        double throughput = 0;
+        for (int round = 0; round < 2; round++) {
+            Thread[] workers = new Thread[threads];
+            long[] checksums = new long[threads];
+            for (int t = 0; t < threads; t++) {
+                final int id = t;
+                workers[t] = new Thread(() -> {
+                    long state = 0x9E3779B97F4A7C15L * (id + 1), checksum = 0;
+                    for (int i = 0; i < CONCURRENT_OPERATIONS; i++) {
+                        state ^= state << 13;
+                        state ^= state >>> 7;
+                        state ^= state << 17;
+                        int r = (int) (state >>> 32) & 0x7FFFFFFF;
+                        checksum += operation.run(keys[r & (keys.length - 1)], (r >>> 20) % 20);
+                    }
+                    checksums[id] = checksum;
+                });
+            }
+
+            long start = System.nanoTime();
+            for (Thread worker : workers) worker.start();
+            for (Thread worker : workers) worker.join();
+            throughput = (double) threads * CONCURRENT_OPERATIONS * 1e3 / (System.nanoTime() - start);
+
+            // Print the checksum so the operations cannot be optimized away
+            if (Arrays.stream(checksums).sum() == 42) System.out.println(42);
+        }
+        return throughput;
+    }
+
+    static void concurrentBenchmark() throws InterruptedException {
+        long[] keys = new long[CONCURRENT_KEY_COUNT];
+        Random random = new Random(7);
+        for (int i = 0; i < keys.length; i++) keys[i] = random.nextLong();
+
+        System.out.printf("%nConcurrent operations (90%% get, 5%% put, 5%% remove) on %d available processors%n",
+                Runtime.getRuntime().availableProcessors());
+        for (int threads : THREAD_COUNTS) {
+            HashTableConcurrentLongLong casTable = new HashTableConcurrentLongLong(2 * CONCURRENT_KEY_COUNT);
+            for (int i = 0; i < keys.length; i += 2) casTable.put(keys[i], keys[i]);
+            double casThroughput = timeConcurrent(
+                    (key, operation) -> operation < 18 ? casTable.get(key)
+                            : operation == 18 ? casTable.put(key, key) : casTable.remove(key), keys, threads);
+
+            HashTableConcurrentSeparateChaining<Long, Long> striped =
+                    new HashTableConcurrentSeparateChaining<>(2 * CONCURRENT_KEY_COUNT);
+            for (int i = 0; i < keys.length; i += 2) striped.put(keys[i], keys[i]);
+            double stripedThroughput = timeConcurrent((key, operation) -> {
+                Long value = operation < 18 ? striped.get(key)
+                        : operation == 18 ? striped.put(key, key) : striped.remove(key);
+                return value == null ? 0 : value;
+            }, keys, threads);
+
+            System.out.printf("%d threads   CAS based: %6.1f Mops/s   lock striped: %6.1f Mops/s%n",
+                    threads, casThroughput, stripedThroughput);
+        }
+    }
+
+    // Stores a Key as its id
+    static final SnapshotCodec<Key> KEY_CODEC = new SnapshotCodec<Key>() {
+        public int size(Key key) {
+            return Integer.BYTES;
+        }
+
+        public void write(Key key, ByteBuffer buffer) {
+            buffer.putInt(key.id);
+        }
+
+        public Key read(ByteBuffer buffer, int size) {
+            return new Key(buffer.getInt());
+        }
+    };
+
+    static void snapshotBenchmark() throws IOException {
+        Key[] keys = createRandomKeys(KEY_COUNT);
+        Path file = Files.createTempFile("hashtable", ".snapshot");
+
+        System.out.printf("%nRestoring a double hashing table of %d keys%n", KEY_COUNT);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                HashTableDoubleHashing<Key, Integer> rebuilt = new HashTableDoubleHashing<>();
+                for (int i = 0; i < keys.length; i++) rebuilt.put(keys[i], i);
+                long rebuildNanos = System.nanoTime() - start;
+
+                rebuilt.writeSnapshot(file, KEY_CODEC, SnapshotCodec.INTEGER);
+
+                start = System.nanoTime();
+                HashTableDoubleHashing<Key, Integer> loaded = new HashTableDoubleHashing<>();
+                loaded.loadSnapshot(file, KEY_CODEC, SnapshotCodec.INTEGER);
+                long loadNanos = System.nanoTime() - start;
+
+                if (loaded.size() != rebuilt.size() || !loaded.get(keys[round]).equals(round))
+                    throw new IllegalStateException("Snapshot does not match the table");
+
+                if (round == ROUNDS - 1) {
+                    System.out.printf("insert every key: %7.1f ms%n", rebuildNanos / 1e6);
+                    System.out.printf("load snapshot:    %7.1f ms (%d bytes)%n", loadNanos / 1e6, Files.size(file));
+                }
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    // Returns the time in milliseconds of the last of ROUNDS runs of filling a table
+    static <T> double timeFill(Supplier<T> fill) {
+        double millis = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            T table = fill.get();
+            millis = (System.nanoTime() - start) / 1e6;
+
+            // Print the table now and then so that filling it cannot be optimized away
+            if (table.hashCode() == 42) System.out.println(table);
+        }
+        return millis;
+    }
+
+    static void presizedBenchmark() {
+        Key[] keys = createRandomKeys(KEY_COUNT);
+        Integer[] values = new Integer[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) values[i] = i;
+
+        System.out.printf("%nFilling a double hashing table with %d keys%n", KEY_COUNT);
+        System.out.printf("growing:      %7.1f ms%n", timeFill(() -> {
+            HashTableDoubleHashing<Key, Integer> table = new HashTableDoubleHashing<>();
+            for (int i = 0; i < KEY_COUNT; i++) table.put(keys[i], values[i]);
+            return table;
+        }));
+        System.out.printf("pre-sized:    %7.1f ms%n", timeFill(() -> {
+            HashTableDoubleHashing<Key, Integer> table = HashTableDoubleHashing.withExpectedSize(KEY_COUNT);
+            for (int i = 0; i < KEY_COUNT; i++) table.put(keys[i], values[i]);
+            return table;
+        }));
+        System.out.printf("from arrays:  %7.1f ms%n", timeFill(() -> {
+            HashTableDoubleHashing<Key, Integer> table = new HashTableDoubleHashing<>();
+            table.build(keys, values);
+            return table;
+        }));
+    }
+
+    // Pass "highload", "batch", "hopscotch", "cuckoo", "concurrent", "snapshot"
+    // or "presized" to only run that comparison
+    public static void main(String[] args) throws InterruptedException, IOException {
+        if (args.length > 0 && args[0].equals("highload")) {
+            highLoadBenchmark();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("batch")) {
+            batchBenchmark();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("hopscotch")) {
+            hopscotchBenchmark();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("cuckoo")) {
+            cuckooBenchmark();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("concurrent")) {
+            concurrentBenchmark();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("snapshot")) {
+            snapshotBenchmark();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("presized")) {
+            presizedBenchmark();
+            return;
+        }
+
+        Key[] keys = createKeys(KEY_COUNT);
+        int[] order = createLookupOrder(KEY_COUNT, LOOKUPS);
+        final double loadFactor = 0.65;
+
+        compare("Linear probing",
+                () -> new HashTableLinearProbing<>(KEY_COUNT, loadFactor),
+                () -> new HashTableLinearProbing<>(KEY_COUNT, loadFactor, false, true),
+                keys, order);
+
+        compare("Quadratic probing",
+                () -> new HashTableQuadraticProbing<>(KEY_COUNT, loadFactor),
+                () -> new HashTableQuadraticProbing<>(KEY_COUNT, loadFactor, true),
+                keys, order);
+
+        compare("Double hashing",
+                () -> new HashTableDoubleHashing<>(KEY_COUNT, loadFactor),
+                () -> new HashTableDoubleHashing<>(KEY_COUNT, loadFactor, true),
+                keys, order);
+
+        highLoadBenchmark();
+        batchBenchmark();
+        hopscotchBenchmark();
+        cuckooBenchmark();
+        concurrentBenchmark();
+        snapshotBenchmark();
+        presizedBenchmark();
+    }
+}
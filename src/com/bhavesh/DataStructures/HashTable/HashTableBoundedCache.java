@@ -0,0 +1,363 @@
+/*
+ * A hash table with a maximum size which evicts keys once it is full, meant to be used
+ * as a cache
+ *
+ * Keys are stored with separate chaining in a bucket table which is sized for the maximum
+ * size up front and never resized. Every entry is also linked into an access order list
+ * (intrusively, through fields of the entry itself), so a cache hit only relinks the
+ * entry and never allocates.
+ *
+ * By default the cache evicts the least recently used key (LRU). With TinyLFU admission
+ * enabled the cache is split W-TinyLFU style into a small LRU window which takes every
+ * new key and a main area made up of a probation and a protected segment. A key leaving
+ * the window only enters the main area if a frequency sketch estimates that it has been
+ * accessed more often than the key it would evict there, so a burst of one-off keys
+ * cannot flush out the keys which are used all the time.
+ */
+
+package com.bhavesh.DataStructures.HashTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SuppressWarnings("unchecked")
+public class HashTableBoundedCache<K, V> {
+
+    private static final int DEFAULT_CAPACITY = 3;
+    private static final double DEFAULT_LOAD_FACTOR = 0.75;
+
+    // The segments an entry can be in, only the window is used in LRU mode
+    private static final int WINDOW = 0, PROBATION = 1, PROTECTED = 2;
+
+    // The share of the maximum size given to the window and, of the
+    // main area, the share given to the protected segment
+    private static final double WINDOW_SHARE = 0.01;
+    private static final double PROTECTED_SHARE = 0.8;
+
+    private static class Node<K, V> extends Entry<K, V> {
+        // The next entry of the bucket's chain
+        Node<K, V> next;
+
+        // The neighbours in the access order list of the entry's segment
+        Node<K, V> before, after;
+        int segment;
+
+        Node(K key, V value) {
+            super(key, value);
+        }
+    }
+
+    // A doubly linked list of entries ordered from least to most recently used
+    private static class AccessOrderList<K, V> {
+        Node<K, V> head, tail;
+        int size;
+
+        void addLast(Node<K, V> node) {
+            node.before = tail;
+            node.after = null;
+            if (tail == null) head = node;
+            else tail.after = node;
+            tail = node;
+            size++;
+        }
+
+        void unlink(Node<K, V> node) {
+            if (node.before == null) head = node.after;
+            else node.before.after = node.after;
+            if (node.after == null) tail = node.before;
+            else node.after.before = node.before;
+            node.before = node.after = null;
+            size--;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            if (node == tail) return;
+            unlink(node);
+            addLast(node);
+        }
+
+        void clear() {
+            head = tail = null;
+            size = 0;
+        }
+    }
+
+    private final int maximumSize, maximumWindowSize, maximumProtectedSize;
+    private final int capacity;
+    private final Node<K, V>[] table;
+    private int size;
+
+    // The segments of the cache, indexed by WINDOW, PROBATION and PROTECTED
+    private final AccessOrderList<K, V>[] segments;
+
+    // Only created when TinyLFU admission is enabled
+    private final FrequencySketch sketch;
+
+    private long hitCount, missCount, evictionCount;
+
+    public HashTableBoundedCache(int maximumSize) {
+        this(maximumSize, false);
+    }
+
+    public HashTableBoundedCache(int maximumSize, boolean tinyLfu) {
+        if (maximumSize <= 0) throw new IllegalArgumentException("Invalid maximum size");
+
+        this.maximumSize = maximumSize;
+        if (tinyLfu) {
+            maximumWindowSize = Math.max(1, (int) (maximumSize * WINDOW_SHARE));
+            maximumProtectedSize = (int) ((maximumSize - maximumWindowSize) * PROTECTED_SHARE);
+            sketch = new FrequencySketch(maximumSize);
+        } else {
+            maximumWindowSize = maximumSize;
+            maximumProtectedSize = 0;
+            sketch = null;
+        }
+
+        // The cache never holds more than maximumSize + 1 keys, so the table never has to grow
+        capacity = Math.max(DEFAULT_CAPACITY, (int) (maximumSize / DEFAULT_LOAD_FACTOR) + 1);
+        table = (Node<K, V>[]) new Node<?, ?>[capacity];
+
+        segments = (AccessOrderList<K, V>[]) new AccessOrderList<?, ?>[3];
+        for (int i = 0; i < segments.length; i++) segments[i] = new AccessOrderList<>();
+    }
+
+    // Returns true if keys are admitted to the main area using TinyLFU
+    public boolean isTinyLfu() {
+        return sketch != null;
+    }
+
+    // Return the number of elements currently inside the cache
+    public int size() {
+        return size;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // The number of get() calls which found their key
+    public long hitCount() {
+        return hitCount;
+    }
+
+    // The number of get() calls which did not find their key
+    public long missCount() {
+        return missCount;
+    }
+
+    // The number of keys evicted to stay within the maximum size
+    public long evictionCount() {
+        return evictionCount;
+    }
+
+    // Returns the fraction of get() calls which found their key
+    public double hitRate() {
+        long requests = hitCount + missCount;
+        return requests == 0 ? 1.0 : (double) hitCount / requests;
+    }
+
+    // Converts a hash value to an index. Essentially, strips the
+    // negative sign and places the hash value in the domain [0, capacity]
+    private int normalizeIndex(int keyHash) {
+        return (keyHash & 0x7FFFFFFF) % capacity;
+    }
+
+    // Clears all the contents of the cache, the counters are kept
+    public void clear() {
+        for (int i = 0; i < capacity; i++) table[i] = null;
+        for (AccessOrderList<K, V> segment : segments) segment.clear();
+        size = 0;
+    }
+
+    // Checks whether a key is present in the cache. Unlike get()
+    // this neither counts as an access nor updates the counters
+    public boolean containsKey(K key) {
+        return hasKey(key);
+    }
+
+    public boolean hasKey(K key) {
+        if (key == null) return false;
+        return seekNode(key.hashCode(), key) != null;
+    }
+
+    // Gets a key's value from the cache and marks the key as most recently used.
+    // Returns null if the value is null AND also returns null if the key does not exist
+    public V get(K key) {
+        if (key == null) return null;
+
+        final int hash = key.hashCode();
+        if (sketch != null) sketch.increment(hash);
+
+        Node<K, V> node = seekNode(hash, key);
+        if (node == null) {
+            missCount++;
+            return null;
+        }
+
+        hitCount++;
+        onAccess(node);
+        return node.value;
+    }
+
+    // Insert, put and add all place a value in the cache, evicting
+    // a key if the cache would otherwise exceed its maximum size
+    public V put(K key, V value) {
+        return insert(key, value);
+    }
+
+    public V add(K key, V value) {
+        return insert(key, value);
+    }
+
+    public V insert(K key, V value) {
+        if (key == null) throw new IllegalArgumentException("Null key");
+
+        final int hash = key.hashCode();
+        if (sketch != null) sketch.increment(hash);
+
+        Node<K, V> node = seekNode(hash, key);
+        if (node != null) {
+            V oldValue = node.value;
+            node.value = value;
+            onAccess(node);
+            return oldValue;
+        }
+
+        node = new Node<>(key, value);
+        int bucketIndex = normalizeIndex(hash);
+        node.next = table[bucketIndex];
+        table[bucketIndex] = node;
+        node.segment = WINDOW;
+        segments[WINDOW].addLast(node);
+        size++;
+
+        evict();
+        return null;
+    }
+
+    // Removes a key from the cache and returns the value.
+    // Returns null if the value is null AND also returns
+    // null if the key does not exist
+    public V remove(K key) {
+        if (key == null) return null;
+        Node<K, V> node = seekNode(key.hashCode(), key);
+        if (node == null) return null;
+        removeNode(node);
+        return node.value;
+    }
+
+    // Finds the entry of a key, returns null if it does not exist
+    private Node<K, V> seekNode(int hash, K key) {
+        for (Node<K, V> node = table[normalizeIndex(hash)]; node != null; node = node.next) {
+            if (node.hash == hash && node.key.equals(key)) return node;
+        }
+        return null;
+    }
+
+    // Unlinks an entry from its chain and from its segment
+    private void removeNode(Node<K, V> node) {
+        int bucketIndex = normalizeIndex(node.hash);
+        if (table[bucketIndex] == node) {
+            table[bucketIndex] = node.next;
+        } else {
+            Node<K, V> prev = table[bucketIndex];
+            while (prev.next != node) prev = prev.next;
+            prev.next = node.next;
+        }
+        segments[node.segment].unlink(node);
+        size--;
+    }
+
+    // Marks an entry as most recently used. A key accessed again while on probation
+    // is promoted to the protected segment, whose least recently used key is demoted
+    // back to probation if the segment has grown too large
+    private void onAccess(Node<K, V> node) {
+        if (node.segment != PROBATION) {
+            segments[node.segment].moveToLast(node);
+            return;
+        }
+
+        segments[PROBATION].unlink(node);
+        node.segment = PROTECTED;
+        segments[PROTECTED].addLast(node);
+
+        if (segments[PROTECTED].size > maximumProtectedSize) {
+            Node<K, V> demoted = segments[PROTECTED].head;
+            segments[PROTECTED].unlink(demoted);
+            demoted.segment = PROBATION;
+            segments[PROBATION].addLast(demoted);
+        }
+    }
+
+    // Brings the cache back within its maximum size after an insertion
+    private void evict() {
+        AccessOrderList<K, V> window = segments[WINDOW];
+
+        // In LRU mode the window is the whole cache
+        if (sketch == null) {
+            if (size > maximumSize) evictNode(window.head);
+            return;
+        }
+
+        if (window.size <= maximumWindowSize) return;
+
+        // The least recently used key of the window moves to the main area
+        Node<K, V> candidate = window.head;
+        window.unlink(candidate);
+        candidate.segment = PROBATION;
+        segments[PROBATION].addLast(candidate);
+        if (size <= maximumSize) return;
+
+        // The main area is full. The candidate competes with the key the main area would
+        // evict, preferably the least recently used key on probation, and only the key
+        // with the higher estimated frequency stays
+        Node<K, V> victim = segments[PROBATION].head;
+        if (victim == candidate) victim = segments[PROTECTED].head;
+        if (victim == null) {
+            evictNode(candidate);
+            return;
+        }
+
+        evictNode(sketch.frequency(candidate.hash) > sketch.frequency(victim.hash) ? victim : candidate);
+    }
+
+    private void evictNode(Node<K, V> node) {
+        removeNode(node);
+        evictionCount++;
+    }
+
+    // Returns the list of keys found within the cache, from the least to the most
+    // recently used key of the window, then of the probation and protected segments
+    public List<K> keys() {
+        List<K> keys = new ArrayList<>(size());
+        for (AccessOrderList<K, V> segment : segments) {
+            for (Node<K, V> node = segment.head; node != null; node = node.after) keys.add(node.key);
+        }
+        return keys;
+    }
+
+    // Returns the list of values found within the cache, in the same order as keys()
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size());
+        for (AccessOrderList<K, V> segment : segments) {
+            for (Node<K, V> node = segment.head; node != null; node = node.after) values.add(node.value);
+        }
+        return values;
+    }
+
+    // Returns a string representation of this cache
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        for (AccessOrderList<K, V> segment : segments) {
+            for (Node<K, V> node = segment.head; node != null; node = node.after) sb.append(node + ", ");
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+}
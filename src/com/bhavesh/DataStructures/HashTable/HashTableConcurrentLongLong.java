@@ -0,0 +1,461 @@
+/*
+ * A thread-safe implementation of a primitive long to long hash table using open addressing
+ * with linear probing as a collision resolution technique, built on compare-and-set
+ *
+ * Keys and values are interleaved in a single long array (the key of slot i at 2i, its value
+ * at 2i + 1) which is only ever accessed through a VarHandle with volatile reads and
+ * compare-and-set, without any locks. Slots are probed with the stride of
+ * HashTableLinearProbing over a power of two capacity.
+ *
+ * A slot is claimed for a key by a CAS of its key from FREE_KEY and is never given to another
+ * key afterwards, removing a key only sets its value to ABSENT. Because a claimed key never
+ * changes, every update of a key is a single CAS on its value.
+ *
+ * Growing the table (or rehashing it at the same capacity to reclaim removed keys) is done
+ * cooperatively: the thread which notices that the table is full installs a next table, and
+ * every thread which gets involved claims chunks of COPY_CHUNK slots and copies them over.
+ * A slot is copied by storing its key and value in the next table and then replacing its
+ * value with MOVED by a CAS, which fails if a writer got in first, in which case the slot is
+ * simply copied again. Threads that meet a MOVED value continue in the next table, everybody
+ * else keeps working in the old table meanwhile. The last chunk copied makes the next table
+ * the current one. A table only starts its own resize once it is the current table, so at
+ * most two tables are ever alive.
+ *
+ * The table is not fully non-blocking. Lookups, updates and removes never wait, but a chunk
+ * is copied only by the thread which claimed it, since copying a slot relies on no other
+ * thread copying it at the same time. Making the copy idempotent would need the value of a
+ * slot to be frozen while it is copied (as Cliff Click's table does by boxing it), and a
+ * primitive value has no spare bit for that. So while a thread holding a chunk is stalled,
+ * the writers which need a new slot in a full table spin until it has finished the chunk.
+ *
+ * The key 0 marks free slots and is stored outside the array instead. Long.MIN_VALUE and
+ * Long.MIN_VALUE + 1 are reserved as the ABSENT and MOVED markers and cannot be used as
+ * values.
+ */
+
+package com.bhavesh.DataStructures.HashTable;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+public class HashTableConcurrentLongLong {
+
+    // Marks a slot which has not been claimed by any key
+    private static final long FREE_KEY = 0L;
+
+    // ABSENT marks a slot without a value (never set or removed) and MOVED
+    // a slot which has been copied to the next table
+    private static final long ABSENT = Long.MIN_VALUE;
+    private static final long MOVED = Long.MIN_VALUE + 1;
+
+    // The stride of the probe sequence, odd so that it reaches every slot of a power of two table
+    private static final int LINEAR_CONSTANT = 17;
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final double DEFAULT_LOAD_FACTOR = 0.65;
+    private static final int MAXIMUM_CAPACITY = 1 << 29;
+
+    // The number of slots a thread copies at a time during a resize
+    private static final int COPY_CHUNK = 1024;
+
+    // Claiming a slot after this many probes checks whether the table is full. Summing the
+    // claimed counter on every claim would make all the writers contend on its cells
+    private static final int RESIZE_CHECK_PROBES = 8;
+
+    // 2^64 divided by the golden ratio, used to spread the keys
+    private static final long FIBONACCI_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private static final class Table {
+        final long[] slots;
+        final int capacity, shift, threshold, chunks;
+
+        // The number of slots claimed by keys, including the keys removed since
+        final LongAdder claimed = new LongAdder();
+
+        // The table the slots are being copied to, and the progress of the copy
+        final AtomicReference<Table> next = new AtomicReference<>();
+        final AtomicInteger copyIndex = new AtomicInteger(), copiedChunks = new AtomicInteger();
+
+        Table(int capacity, double loadFactor) {
+            this.capacity = capacity;
+            shift = 64 - Integer.numberOfTrailingZeros(capacity);
+            threshold = (int) (capacity * loadFactor);
+            chunks = (capacity + COPY_CHUNK - 1) / COPY_CHUNK;
+
+            slots = new long[2 * capacity];
+            for (int i = 1; i < slots.length; i += 2) slots[i] = ABSENT;
+        }
+
+        // Converts a key to its home slot using the top bits of a Fibonacci hash
+        int homeSlot(long key) {
+            return (int) ((key * FIBONACCI_MULTIPLIER) >>> shift);
+        }
+
+        int nextSlot(int i) {
+            return (i + LINEAR_CONSTANT) & (capacity - 1);
+        }
+
+        long key(int i) {
+            return (long) SLOTS.getVolatile(slots, 2 * i);
+        }
+
+        long value(int i) {
+            return (long) SLOTS.getVolatile(slots, 2 * i + 1);
+        }
+
+        boolean casKey(int i, long expected, long key) {
+            return SLOTS.compareAndSet(slots, 2 * i, expected, key);
+        }
+
+        boolean casValue(int i, long expected, long value) {
+            return SLOTS.compareAndSet(slots, 2 * i + 1, expected, value);
+        }
+
+        boolean isFull() {
+            return claimed.sum() >= threshold;
+        }
+    }
+
+    private final double loadFactor;
+
+    // The current table, older tables stay reachable through their next table
+    private volatile Table table;
+
+    // The value of the key 0, ABSENT if it is not in the table
+    private final AtomicLong zeroKeyValue = new AtomicLong(ABSENT);
+
+    private final LongAdder size = new LongAdder();
+
+    // The value returned when a key is not present in the hash table
+    private final long noEntryValue;
+
+    public HashTableConcurrentLongLong() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    public HashTableConcurrentLongLong(int capacity) {
+        this(capacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    public HashTableConcurrentLongLong(int capacity, double loadFactor) {
+        this(capacity, loadFactor, 0L);
+    }
+
+    public HashTableConcurrentLongLong(int capacity, double loadFactor, long noEntryValue) {
+        if (capacity <= 0 || capacity > MAXIMUM_CAPACITY) throw new IllegalArgumentException("Invalid capacity");
+
+        if (loadFactor <= 0 || loadFactor >= 1 || Double.isNaN(loadFactor))
+            throw new IllegalArgumentException("Invalid load factor");
+
+        this.loadFactor = loadFactor;
+        this.noEntryValue = noEntryValue;
+        table = new Table(nextPowerOfTwo(Math.max(DEFAULT_CAPACITY, capacity)), loadFactor);
+    }
+
+    // Returns the smallest power of two greater than or equal to n
+    private static int nextPowerOfTwo(int n) {
+        int pow2 = Integer.highestOneBit(n);
+        return pow2 == n ? n : pow2 << 1;
+    }
+
+    // Returns the number of keys inside the hash table. While other threads
+    // are modifying the table this is only an estimate
+    public int size() {
+        return (int) Math.max(0, size.sum());
+    }
+
+    // Returns true/false depending on whether the hash table is empty
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Returns the capacity of the current table
+    public int getCapacity() {
+        return table.capacity;
+    }
+
+    // Returns the value used to signal that a key is not present
+    public long getNoEntryValue() {
+        return noEntryValue;
+    }
+
+    private static void checkValue(long value) {
+        if (value == ABSENT || value == MOVED) throw new IllegalArgumentException("Invalid value");
+    }
+
+    // Returns true/false depending on whether a given key exists in the hash table
+    public boolean containsKey(long key) {
+        return find(key) != ABSENT;
+    }
+
+    public boolean hasKey(long key) {
+        return containsKey(key);
+    }
+
+    // Get the value associated with the input key, or the no entry value if absent
+    public long get(long key) {
+        long value = find(key);
+        return value == ABSENT ? noEntryValue : value;
+    }
+
+    // Returns the value of a key, or ABSENT if the key is not in the table
+    private long find(long key) {
+        if (key == FREE_KEY) return zeroKeyValue.get();
+
+        Table t = table;
+        search:
+        while (true) {
+            for (int i = t.homeSlot(key), probes = 1; ; i = t.nextSlot(i), probes++) {
+                long k = t.key(i);
+                if (k == key || k == FREE_KEY) {
+                    long value = t.value(i);
+
+                    // The slot has been copied, and a key which was not in the table
+                    // when its slot was copied can only have been added to the next table
+                    if (value == MOVED) {
+                        t = t.next.get();
+                        continue search;
+                    }
+                    return k == FREE_KEY ? ABSENT : value;
+                }
+
+                // Every slot is claimed, so the key can only be in the next table if there is one
+                if (probes == t.capacity) {
+                    t = t.next.get();
+                    if (t == null) return ABSENT;
+                    continue search;
+                }
+            }
+        }
+    }
+
+    // Place a key-value pair in the hash table. If the key already exists inside
+    // the hash table then the value is updated and the previous value is returned,
+    // otherwise the no entry value is returned
+    public long put(long key, long value) {
+        checkValue(value);
+        if (key == FREE_KEY) return updated(zeroKeyValue.getAndSet(value));
+
+        Table t = table;
+        search:
+        while (true) {
+            for (int i = t.homeSlot(key), probes = 1; ; i = t.nextSlot(i), probes++) {
+                long k = t.key(i);
+
+                if (k == FREE_KEY) {
+                    // Only claim a new slot while the table has room, otherwise help resizing.
+                    // A full table which has been copied already simply leads on to the next one
+                    if (probes >= RESIZE_CHECK_PROBES && t.isFull()) {
+                        t = t.value(i) == MOVED ? t.next.get() : helpResize(t);
+                        continue search;
+                    }
+                    if (t.casKey(i, FREE_KEY, key)) {
+                        t.claimed.increment();
+                        k = key;
+                    } else {
+                        k = t.key(i);
+                    }
+                }
+
+                if (k == key) {
+                    while (true) {
+                        long oldValue = t.value(i);
+                        if (oldValue == MOVED) {
+                            t = t.next.get();
+                            continue search;
+                        }
+                        if (t.casValue(i, oldValue, value)) return updated(oldValue);
+                    }
+                }
+
+                // Every slot is claimed by other keys, so the key is not in this table and
+                // can go straight to the next one, just like lookups continue there
+                if (probes >= t.capacity) {
+                    Table next = t.next.get();
+                    t = next != null ? next : helpResize(t);
+                    continue search;
+                }
+            }
+        }
+    }
+
+    // Counts a new key if a put replaced ABSENT and converts the old value for the caller
+    private long updated(long oldValue) {
+        if (oldValue != ABSENT) return oldValue;
+        size.increment();
+        return noEntryValue;
+    }
+
+    // Removes a key from the hash table and returns the value, or
+    // the no entry value if the key does not exist
+    public long remove(long key) {
+        if (key == FREE_KEY) return removed(zeroKeyValue.getAndSet(ABSENT));
+
+        Table t = table;
+        search:
+        while (true) {
+            for (int i = t.homeSlot(key), probes = 1; ; i = t.nextSlot(i), probes++) {
+                long k = t.key(i);
+                if (k == key || k == FREE_KEY) {
+                    while (true) {
+                        long oldValue = t.value(i);
+                        if (oldValue == MOVED) {
+                            t = t.next.get();
+                            continue search;
+                        }
+                        if (k == FREE_KEY || oldValue == ABSENT) return noEntryValue;
+                        if (t.casValue(i, oldValue, ABSENT)) return removed(oldValue);
+                    }
+                }
+
+                if (probes == t.capacity) {
+                    t = t.next.get();
+                    if (t == null) return noEntryValue;
+                    continue search;
+                }
+            }
+        }
+    }
+
+    // Uncounts a key if a remove replaced a value and converts the old value for the caller
+    private long removed(long oldValue) {
+        if (oldValue == ABSENT) return noEntryValue;
+        size.decrement();
+        return oldValue;
+    }
+
+    // Makes sure a full table is being resized, helps copying it and returns the table to
+    // continue in. Slots which have been copied lead on to the next table from there
+    private Table helpResize(Table t) {
+        Table current = table;
+
+        // An older table is still being copied into this one, which has to finish first
+        if (current != t) {
+            helpCopy(current);
+            return t;
+        }
+
+        if (t.next.get() == null) {
+            // Keys removed since the last resize still hold their slots, if they make up
+            // most of the claimed slots the table is rebuilt at the same capacity instead
+            int capacity = t.capacity;
+            if (size.sum() >= t.threshold / 2) {
+                if (capacity == MAXIMUM_CAPACITY) throw new IllegalStateException("Hash table is full");
+                capacity *= 2;
+            }
+            t.next.compareAndSet(null, new Table(capacity, loadFactor));
+        }
+
+        helpCopy(t);
+        return t;
+    }
+
+    // Claims and copies chunks of a table until none are left. The thread
+    // copying the last chunk makes the next table the current one
+    private void helpCopy(Table t) {
+        final Table next = t.next.get();
+        if (next == null) return;
+
+        while (true) {
+            int start = t.copyIndex.getAndAdd(COPY_CHUNK);
+            if (start >= t.capacity) {
+                // Every chunk is taken, the caller retries until their owners are done
+                if (t.copiedChunks.get() < t.chunks) Thread.onSpinWait();
+                return;
+            }
+
+            int end = Math.min(t.capacity, start + COPY_CHUNK);
+            for (int i = start; i < end; i++) copySlot(t, next, i);
+
+            if (t.copiedChunks.incrementAndGet() == t.chunks) table = next;
+        }
+    }
+
+    // Copies a slot into the next table and marks it as MOVED. Only the thread holding the
+    // chunk copies the slot and no thread uses the key in the next table before the slot is
+    // MOVED, so storing into the next table cannot overwrite anything newer
+    private void copySlot(Table t, Table next, int i) {
+        boolean copied = false;
+
+        while (true) {
+            // The value is read first, a key is always claimed before its value is set
+            long value = t.value(i);
+            long key = t.key(i);
+
+            // A value copied by an earlier round of this loop which has been
+            // removed since is overwritten with ABSENT
+            if (key != FREE_KEY && (value != ABSENT || copied)) {
+                copyInto(next, key, value);
+                copied = true;
+            }
+            if (t.casValue(i, value, MOVED)) return;
+        }
+    }
+
+    // Stores a key-value pair in a table which is being filled by a resize
+    private void copyInto(Table t, long key, long value) {
+        for (int i = t.homeSlot(key), probes = 1; ; i = t.nextSlot(i), probes++) {
+            long k = t.key(i);
+            if (k == FREE_KEY) {
+                if (t.casKey(i, FREE_KEY, key)) {
+                    t.claimed.increment();
+                    k = key;
+                } else {
+                    k = t.key(i);
+                }
+            }
+
+            if (k == key) {
+                SLOTS.setVolatile(t.slots, 2 * i + 1, value);
+                return;
+            }
+
+            // Writers stop claiming slots at the threshold, which leaves plenty of
+            // room for the copied keys
+            if (probes == t.capacity) throw new IllegalStateException("Hash table is full");
+        }
+    }
+
+    // Returns the keys present in the hash table. While other threads are
+    // modifying the table this is a snapshot of no particular moment
+    public long[] keys() {
+        long[] keys = new long[Math.max(16, size())];
+        int n = 0;
+        if (zeroKeyValue.get() != ABSENT) keys[n++] = FREE_KEY;
+
+        // During a resize a key can be in both tables for a moment
+        HashTableLongLong seen = new HashTableLongLong(keys.length, 0.5);
+        for (Table t = table; t != null; t = t.next.get()) {
+            for (int i = 0; i < t.capacity; i++) {
+                long key = t.key(i), value = t.value(i);
+                if (key == FREE_KEY || value == ABSENT || value == MOVED) continue;
+                if (seen.put(key, 1L) != 0L) continue;
+                if (n == keys.length) keys = Arrays.copyOf(keys, 2 * n);
+                keys[n++] = key;
+            }
+        }
+        return Arrays.copyOf(keys, n);
+    }
+
+    // Return a String representation of this hash-table
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("{");
+        for (long key : keys()) {
+            long value = find(key);
+            if (value != ABSENT) sb.append(key + " => " + value + ", ");
+        }
+        sb.append("}");
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * A thread-safe implementation of a hash-table using separate chaining with lock striping
+ *
+ * The buckets are split into a fixed number of stripes, bucket i belonging to stripe
+ * i mod stripes. Writers lock the stripe of the bucket they modify, so writers working
+ * on different stripes never contend. Readers never lock at all: bucket heads are read
+ * from an AtomicReferenceArray and every link and value of a node is volatile, so a
+ * reader always sees a consistent chain.
+ *
+ * A resize takes every stripe lock, copies the chains into fresh nodes of a table twice
+ * as large and then publishes the new table. The old nodes are never modified, so readers
+ * which are still walking the old table simply finish their lookup there.
+ */
+
+package com.bhavesh.DataStructures.HashTable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class HashTableConcurrentSeparateChaining<K, V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final double DEFAULT_LOAD_FACTOR = 0.75;
+    private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+    private static class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        volatile Node<K, V> next;
+
+        Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+
+        @Override
+        public String toString() {
+            return key + " => " + value;
+        }
+    }
+
+    // A lock guarding every bucket whose index is congruent to the
+    // stripe's index, together with the number of entries in those buckets
+    private static class Stripe extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+
+        volatile int size;
+    }
+
+    private final double maxLoadFactor;
+    private final Stripe[] stripes;
+
+    // The current table. Its length is always a power of two no smaller than
+    // the number of stripes, so the keys of a bucket all share a stripe
+    private volatile AtomicReferenceArray<Node<K, V>> table;
+    private volatile int threshold;
+
+    public HashTableConcurrentSeparateChaining() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    public HashTableConcurrentSeparateChaining(int capacity) {
+        this(capacity, DEFAULT_LOAD_FACTOR, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    public HashTableConcurrentSeparateChaining(int capacity, double maxLoadFactor) {
+        this(capacity, maxLoadFactor, DEFAULT_CONCURRENCY_LEVEL);
+    }
+
+    // The concurrency level is the number of stripes, i.e. the number of
+    // writers which can modify the table at the same time
+    public HashTableConcurrentSeparateChaining(int capacity, double maxLoadFactor, int concurrencyLevel) {
+        if (capacity < 0) throw new IllegalArgumentException("Invalid capacity");
+        if (maxLoadFactor <= 0 || Double.isNaN(maxLoadFactor) || Double.isInfinite(maxLoadFactor))
+            throw new IllegalArgumentException("Invalid maxLoadFactor");
+        if (concurrencyLevel <= 0) throw new IllegalArgumentException("Invalid concurrencyLevel");
+
+        this.maxLoadFactor = maxLoadFactor;
+
+        stripes = new Stripe[nextPowerOfTwo(concurrencyLevel)];
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new Stripe();
+
+        int tableCapacity = nextPowerOfTwo(Math.max(Math.max(DEFAULT_CAPACITY, capacity), stripes.length));
+        table = new AtomicReferenceArray<>(tableCapacity);
+        threshold = (int) (tableCapacity * maxLoadFactor);
+    }
+
+    // Returns the smallest power of two greater than or equal to n
+    private static int nextPowerOfTwo(int n) {
+        int pow2 = Integer.highestOneBit(n);
+        return pow2 == n ? n : pow2 << 1;
+    }
+
+    // Mixes the high bits of the hash into the low bits, since only
+    // the low bits are used to pick the bucket and the stripe
+    private static int spread(int keyHash) {
+        return keyHash ^ (keyHash >>> 16);
+    }
+
+    private Stripe stripeFor(int hash) {
+        return stripes[hash & (stripes.length - 1)];
+    }
+
+    // Return the number of elements currently inside the hash table
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) size += stripe.size;
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Clears all the contents of the hash table
+    public void clear() {
+        lockAll();
+        try {
+            table = new AtomicReferenceArray<>(table.length());
+            for (Stripe stripe : stripes) stripe.size = 0;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    public boolean containsKey(K key) {
+        return hasKey(key);
+    }
+
+    // Checks whether a key in present in the hash table
+    public boolean hasKey(K key) {
+        if (key == null) return false;
+        return seekNode(key) != null;
+    }
+
+    // Insert, put and add all place a value in the hash table
+    public V put(K key, V value) {
+        return insert(key, value);
+    }
+
+    public V add(K key, V value) {
+        return insert(key, value);
+    }
+
+    public V insert(K key, V value) {
+        if (key == null) throw new IllegalArgumentException("Null key");
+
+        final int hash = spread(key.hashCode());
+        final Stripe stripe = stripeFor(hash);
+        boolean resize;
+
+        stripe.lock();
+        try {
+            // The table cannot be replaced while we hold a stripe lock
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            int bucketIndex = hash & (tab.length() - 1);
+
+            Node<K, V> head = tab.get(bucketIndex);
+            for (Node<K, V> node = head; node != null; node = node.next) {
+                if (node.hash == hash && node.key.equals(key)) {
+                    V oldValue = node.value;
+                    node.value = value;
+                    return oldValue;
+                }
+            }
+
+            // Publishing the new head is a volatile write, so readers
+            // either see the fully constructed node or the old head
+            tab.set(bucketIndex, new Node<>(hash, key, value, head));
+            stripe.size++;
+            resize = (long) stripe.size * stripes.length > threshold;
+        } finally {
+            stripe.unlock();
+        }
+
+        // The stripe's share is only an estimate, confirm with the full size before locking everything
+        if (resize && size() > threshold) resizeTable();
+        return null;
+    }
+
+    // Gets a key's values from the map and returns the value.
+    // Returns null if the value is null AND also
+    // returns null if the key does not exist
+    public V get(K key) {
+        if (key == null) return null;
+        Node<K, V> node = seekNode(key);
+        return node == null ? null : node.value;
+    }
+
+    // Removes a key from the map and returns the value.
+    // Returns null if the value is null AND also returns
+    // null if the key does not exist
+    public V remove(K key) {
+        if (key == null) return null;
+
+        final int hash = spread(key.hashCode());
+        final Stripe stripe = stripeFor(hash);
+
+        stripe.lock();
+        try {
+            AtomicReferenceArray<Node<K, V>> tab = table;
+            int bucketIndex = hash & (tab.length() - 1);
+
+            for (Node<K, V> node = tab.get(bucketIndex), prev = null; node != null; prev = node, node = node.next) {
+                if (node.hash == hash && node.key.equals(key)) {
+
+                    // Unlinking leaves the removed node pointing into the chain,
+                    // so a reader currently standing on it can keep walking
+                    if (prev == null) tab.set(bucketIndex, node.next);
+                    else prev.next = node.next;
+                    stripe.size--;
+                    return node.value;
+                }
+            }
+            return null;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    // Finds the node of a key without taking any lock, returns null if it does not exist
+    private Node<K, V> seekNode(K key) {
+        final int hash = spread(key.hashCode());
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (Node<K, V> node = tab.get(hash & (tab.length() - 1)); node != null; node = node.next) {
+            if (node.hash == hash && node.key.equals(key)) return node;
+        }
+        return null;
+    }
+
+    // Doubles the table. Writers are blocked while the nodes are copied, readers are not
+    private void resizeTable() {
+        lockAll();
+        try {
+            // Another writer may have resized the table while we were waiting for the locks
+            if (size() <= threshold) return;
+
+            AtomicReferenceArray<Node<K, V>> oldTable = table;
+            int capacity = oldTable.length() * 2;
+            AtomicReferenceArray<Node<K, V>> newTable = new AtomicReferenceArray<>(capacity);
+
+            for (int i = 0; i < oldTable.length(); i++) {
+                for (Node<K, V> node = oldTable.get(i); node != null; node = node.next) {
+                    int bucketIndex = node.hash & (capacity - 1);
+                    newTable.set(bucketIndex, new Node<>(node.hash, node.key, node.value, newTable.get(bucketIndex)));
+                }
+            }
+
+            threshold = (int) (capacity * maxLoadFactor);
+            table = newTable;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    // Locks are always taken in stripe order to avoid deadlocks between resizes
+    private void lockAll() {
+        for (Stripe stripe : stripes) stripe.lock();
+    }
+
+    private void unlockAll() {
+        for (Stripe stripe : stripes) stripe.unlock();
+    }
+
+    // Returns the list of keys found within the hash table. The list reflects the
+    // state of the table at some point during the call, concurrent updates may or
+    // may not be visible
+    public List<K> keys() {
+        List<K> keys = new ArrayList<>(size());
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (int i = 0; i < tab.length(); i++) {
+            for (Node<K, V> node = tab.get(i); node != null; node = node.next) keys.add(node.key);
+        }
+        return keys;
+    }
+
+    // Returns the list of values found within the hash table, see keys()
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size());
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (int i = 0; i < tab.length(); i++) {
+            for (Node<K, V> node = tab.get(i); node != null; node = node.next) values.add(node.value);
+        }
+        return values;
+    }
+
+    // Returns a string representation of this hash table
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        AtomicReferenceArray<Node<K, V>> tab = table;
+        for (int i = 0; i < tab.length(); i++) {
+            for (Node<K, V> node = tab.get(i); node != null; node = node.next) sb.append(node + ", ");
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+}
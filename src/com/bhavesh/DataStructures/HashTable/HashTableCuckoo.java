@@ -0,0 +1,584 @@
+/*
+ * An implementation of a hash table using bucketized cuckoo hashing
+ *
+ * The slots are split into buckets of BUCKET_SIZE and every key may only live in one of
+ * its d candidate buckets (d hash functions, 2 by default), so a lookup checks at most
+ * d * BUCKET_SIZE slots plus a stash of at most STASH_SIZE keys, no matter how full the
+ * table is (keys sharing their hashCode() with too many others aside, see below).
+ *
+ * Like double hashing the candidate buckets come from two hash values: the first bucket
+ * from hashCode() and a step from the key's SecondaryHash, with the i-th bucket being
+ * first + i * step. The step is odd and the number of buckets a power of two, so the d
+ * buckets of a key are always distinct.
+ *
+ * A new key takes a free slot in any of its buckets. If they are all full, the key kicks
+ * a random key out of one of them and takes its place, the evicted key then moves to one
+ * of its other buckets, possibly kicking out another key, and so on (a random walk). The
+ * number of kicks grows quickly as the table approaches its maximum load, which is why
+ * the table reports them. If a walk gives up after MAX_KICKS the homeless key goes to the
+ * stash. Once the stash is full a few homeless keys (up to capacity / 2^OVERFLOW_SHIFT)
+ * go to a small separate chaining overflow table, and after that the table grows instead.
+ *
+ * Growing only helps if the keys spread out over the larger table. A homeless key which
+ * finds nothing but keys with its own hashCode() in its candidate buckets would never fit,
+ * so it goes to the overflow table however large that is. As in HashTableHopscotch the
+ * first bucket of every such key is flagged, and only lookups whose first bucket is
+ * flagged ever consult the overflow table.
+ */
+
+package com.bhavesh.DataStructures.HashTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SuppressWarnings("unchecked")
+public class HashTableCuckoo<K extends SecondaryHash, V> {
+
+    // The number of slots in a bucket
+    private static final int BUCKET_SIZE = 4;
+
+    // The number of keys the stash holds before keys go to the overflow table
+    private static final int STASH_SIZE = 4;
+
+    // The overflow table may hold capacity >>> OVERFLOW_SHIFT keys before the table grows instead
+    private static final int OVERFLOW_SHIFT = 8;
+
+    // How many keys an insertion may kick out before it gives up
+    private static final int MAX_KICKS = 500;
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final double DEFAULT_LOAD_FACTOR = 0.9;
+    private static final int DEFAULT_HASH_FUNCTIONS = 2, MAX_HASH_FUNCTIONS = 4;
+
+    // Multipliers spreading the first and the second hash value
+    private static final int FIBONACCI_MULTIPLIER = 0x9E3779B9;
+    private static final int STEP_MULTIPLIER = 0x85EBCA6B;
+
+    private final double loadFactor;
+    private final int hashFunctions;
+    private int capacity, threshold, bucketMask, bucketShift;
+
+    // To keep track of the number of unique keys currently inside the hash table,
+    // including the keys in the stash and in the overflow table
+    private int keyCount;
+
+    // The key-value pairs and the hash code of each key, bucket after bucket
+    private K[] keys;
+    private V[] values;
+    private int[] hashes;
+
+    // Keys which found no slot, at most STASH_SIZE of them
+    private K[] stashKeys;
+    private V[] stashValues;
+    private int stashSize;
+
+    // Keys which found no slot once the stash was full, and one bit per bucket flagging that
+    // keys whose first bucket it is were put there. Both are only allocated when first needed
+    private HashTableSeparateChaining<K, V> overflow;
+    private long[] overflowBuckets;
+
+    // The entry left without a slot when place() fails
+    private K homelessKey;
+    private V homelessValue;
+
+    // Statistics about insertions, to tune the load factor
+    private long insertCount, kickCount;
+    private int maxKicks, resizeCount;
+
+    // State of the xorshift generator choosing which key to kick out
+    private int random = 0x2545F491;
+
+    public HashTableCuckoo() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR, DEFAULT_HASH_FUNCTIONS);
+    }
+
+    public HashTableCuckoo(int capacity) {
+        this(capacity, DEFAULT_LOAD_FACTOR, DEFAULT_HASH_FUNCTIONS);
+    }
+
+    public HashTableCuckoo(int capacity, double loadFactor) {
+        this(capacity, loadFactor, DEFAULT_HASH_FUNCTIONS);
+    }
+
+    public HashTableCuckoo(int capacity, double loadFactor, int hashFunctions) {
+        if (capacity <= 0) throw new IllegalArgumentException("Invalid capacity");
+
+        if (loadFactor <= 0 || loadFactor >= 1 || Double.isNaN(loadFactor))
+            throw new IllegalArgumentException("Invalid load factor");
+
+        if (hashFunctions < 2 || hashFunctions > MAX_HASH_FUNCTIONS)
+            throw new IllegalArgumentException("Invalid number of hash functions");
+
+        this.loadFactor = loadFactor;
+        this.hashFunctions = hashFunctions;
+        allocateTable(nextPowerOfTwo(Math.max(DEFAULT_CAPACITY, capacity)));
+    }
+
+    // Returns the smallest power of two greater than or equal to n
+    private static int nextPowerOfTwo(int n) {
+        int pow2 = Integer.highestOneBit(n);
+        return pow2 == n ? n : pow2 << 1;
+    }
+
+    private void allocateTable(int capacity) {
+        this.capacity = capacity;
+        threshold = (int) (capacity * loadFactor);
+
+        int buckets = capacity / BUCKET_SIZE;
+        bucketMask = buckets - 1;
+        bucketShift = Integer.numberOfLeadingZeros(buckets) + 1;
+
+        keys = (K[]) new SecondaryHash[capacity];
+        values = (V[]) new Object[capacity];
+        hashes = new int[capacity];
+        stashKeys = (K[]) new SecondaryHash[STASH_SIZE];
+        stashValues = (V[]) new Object[STASH_SIZE];
+        stashSize = 0;
+        overflow = null;
+        overflowBuckets = null;
+    }
+
+    public void clear() {
+        for (int i = 0; i < capacity; i++) {
+            keys[i] = null;
+            values[i] = null;
+        }
+        for (int i = 0; i < stashSize; i++) {
+            stashKeys[i] = null;
+            stashValues[i] = null;
+        }
+        stashSize = 0;
+        overflow = null;
+        overflowBuckets = null;
+        keyCount = 0;
+    }
+
+    // Returns the number of keys inside the hash table
+    public int size() {
+        return keyCount;
+    }
+
+    // Returns the capacity of the hashtable
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Returns true/false depending on whether the hash table is empty
+    public boolean isEmpty() {
+        return keyCount == 0;
+    }
+
+    // Returns the number of hash functions, i.e. candidate buckets per key
+    public int getHashFunctions() {
+        return hashFunctions;
+    }
+
+    // Returns the number of keys currently kept in the stash
+    public int getStashSize() {
+        return stashSize;
+    }
+
+    // Returns the number of keys currently kept in the overflow table
+    public int overflowSize() {
+        return overflow == null ? 0 : overflow.size();
+    }
+
+    // Returns the number of new keys inserted since the statistics were last reset
+    public long getInsertCount() {
+        return insertCount;
+    }
+
+    // Returns the total number of keys kicked out of their slot by those insertions
+    public long getKickCount() {
+        return kickCount;
+    }
+
+    // Returns the average number of kicks per inserted key
+    public double getAverageKicks() {
+        return insertCount == 0 ? 0 : (double) kickCount / insertCount;
+    }
+
+    // Returns the largest number of kicks a single insertion needed
+    public int getMaxKicks() {
+        return maxKicks;
+    }
+
+    // Returns the number of times the table had to grow
+    public int getResizeCount() {
+        return resizeCount;
+    }
+
+    public void resetStatistics() {
+        insertCount = kickCount = 0;
+        maxKicks = resizeCount = 0;
+    }
+
+    public V put(K key, V value) {
+        return insert(key, value);
+    }
+
+    public V add(K key, V value) {
+        return insert(key, value);
+    }
+
+    // Returns true/false depending on whether a given key exists within the hash table
+    public boolean containsKey(K key) {
+        return hasKey(key);
+    }
+
+    // Returns the first candidate bucket of a key, taken from the top bits of a Fibonacci hash
+    private int firstBucket(int hash) {
+        return (hash * FIBONACCI_MULTIPLIER) >>> bucketShift;
+    }
+
+    // Returns the distance between the candidate buckets of a key, always odd
+    private int bucketStep(int hash2) {
+        return ((hash2 * STEP_MULTIPLIER) >>> bucketShift) | 1;
+    }
+
+    // Returns the i-th candidate bucket of a key
+    private int bucket(int first, int step, int i) {
+        return (first + i * step) & bucketMask;
+    }
+
+    // Finds the slot holding the key, returns -1 if it is not in the buckets (it may still be in
+    // the stash or the overflow table).
+    // Every candidate bucket is scanned for the hash before any key is compared, so that the
+    // loads of all buckets are in flight at once instead of waiting on a branch per bucket
+    private int find(K key, int hash) {
+        final int first = firstBucket(hash), step = bucketStep(key.hashCode2());
+
+        // Scanning backwards leaves the first slot with a matching hash in match
+        int match = -1;
+        for (int i = hashFunctions - 1; i >= 0; i--) {
+            int start = bucket(first, step, i) * BUCKET_SIZE;
+            for (int slot = start + BUCKET_SIZE - 1; slot >= start; slot--) {
+                if (hashes[slot] == hash) match = slot;
+            }
+        }
+        if (match == -1) return -1;
+        if (keys[match] != null && keys[match].equals(key)) return match;
+
+        // A different key with the same hash, or a stale hash of an empty slot
+        for (int i = 0; i < hashFunctions; i++) {
+            int start = bucket(first, step, i) * BUCKET_SIZE;
+            for (int slot = start; slot < start + BUCKET_SIZE; slot++) {
+                if (hashes[slot] == hash && keys[slot] != null && keys[slot].equals(key)) return slot;
+            }
+        }
+        return -1;
+    }
+
+    // Finds the index of the key in the stash, returns -1 if it is not there
+    private int findInStash(K key) {
+        for (int i = 0; i < stashSize; i++) {
+            if (stashKeys[i].equals(key)) return i;
+        }
+        return -1;
+    }
+
+    // Returns true if keys with this hash may have been put into the overflow table
+    private boolean mayOverflow(int hash) {
+        if (overflowBuckets == null) return false;
+        int bucket = firstBucket(hash);
+        return (overflowBuckets[bucket >>> 6] & (1L << bucket)) != 0;
+    }
+
+    // Place a key-value pair in the hash table. If the value already
+    // exists inside the hash table then the value is updated
+    public V insert(K key, V value) {
+        if (key == null) throw new IllegalArgumentException("Null key");
+        final int hash = key.hashCode();
+
+        int slot = find(key, hash);
+        if (slot != -1) {
+            V oldValue = values[slot];
+            values[slot] = value;
+            return oldValue;
+        }
+        if (stashSize > 0) {
+            int index = findInStash(key);
+            if (index != -1) {
+                V oldValue = stashValues[index];
+                stashValues[index] = value;
+                return oldValue;
+            }
+        }
+        if (mayOverflow(hash) && overflow.hasKey(key)) return overflow.put(key, value);
+
+        if (keyCount >= threshold) resizeTable(capacity * 2, null, null);
+
+        int kicks = place(key, value);
+        if (kicks == -1) resizeTable(capacity * 2, homelessKey, homelessValue);
+        else {
+            kickCount += kicks;
+            maxKicks = Math.max(maxKicks, kicks);
+        }
+
+        insertCount++;
+        keyCount++;
+        return null;
+    }
+
+    // Places a key which is not in the table, kicking other keys around as needed and falling
+    // back to the stash and the overflow table. Returns the number of kicks, or -1 if the table
+    // has to grow, in which case homelessKey and homelessValue hold the entry which is left
+    // without a slot (not necessarily this one)
+    private int place(K key, V value) {
+        int hash = key.hashCode();
+        int from = -1;
+
+        for (int kicks = 0; kicks <= MAX_KICKS; kicks++) {
+            final int first = firstBucket(hash), step = bucketStep(key.hashCode2());
+
+            // Take a free slot in any candidate bucket other than the one the key was kicked out of
+            for (int i = 0; i < hashFunctions; i++) {
+                int bucket = bucket(first, step, i);
+                if (bucket == from) continue;
+
+                int start = bucket * BUCKET_SIZE;
+                for (int slot = start; slot < start + BUCKET_SIZE; slot++) {
+                    if (keys[slot] == null) {
+                        keys[slot] = key;
+                        values[slot] = value;
+                        hashes[slot] = hash;
+                        return kicks;
+                    }
+                }
+            }
+            if (kicks == MAX_KICKS) break;
+
+            // Kick a random key out of a random candidate bucket and take its slot
+            int r = nextRandom();
+            int i = (r & 0xFFFF) % hashFunctions;
+            int bucket = bucket(first, step, i);
+            if (bucket == from) bucket = bucket(first, step, (i + 1) % hashFunctions);
+            int slot = bucket * BUCKET_SIZE + ((r >>> 16) & (BUCKET_SIZE - 1));
+
+            K kickedKey = keys[slot];
+            V kickedValue = values[slot];
+            keys[slot] = key;
+            values[slot] = value;
+            hashes[slot] = hash;
+
+            key = kickedKey;
+            value = kickedValue;
+            hash = key.hashCode();
+            from = bucket;
+        }
+
+        if (stashSize < STASH_SIZE) {
+            addToStash(key, value);
+            return MAX_KICKS;
+        }
+        if (overflowSize() < capacity >>> OVERFLOW_SHIFT || isSaturated(key)) {
+            addToOverflow(key, value);
+            return MAX_KICKS;
+        }
+
+        homelessKey = key;
+        homelessValue = value;
+        return -1;
+    }
+
+    // Returns true if every candidate slot of a key holds a key with the same hashCode(). Those
+    // keys all share the first bucket whatever the capacity, and with only a few different
+    // hashCode2() values among them growing the table never makes room for another one
+    private boolean isSaturated(K key) {
+        final int hash = key.hashCode();
+        final int first = firstBucket(hash), step = bucketStep(key.hashCode2());
+
+        for (int i = 0; i < hashFunctions; i++) {
+            int start = bucket(first, step, i) * BUCKET_SIZE;
+            for (int slot = start; slot < start + BUCKET_SIZE; slot++) {
+                if (hashes[slot] != hash) return false;
+            }
+        }
+        return true;
+    }
+
+    private void addToStash(K key, V value) {
+        stashKeys[stashSize] = key;
+        stashValues[stashSize] = value;
+        stashSize++;
+    }
+
+    private void addToOverflow(K key, V value) {
+        if (overflow == null) {
+            overflow = new HashTableSeparateChaining<>();
+            overflowBuckets = new long[Math.max(1, (bucketMask + 1) >>> 6)];
+        }
+        overflow.put(key, value);
+
+        int bucket = firstBucket(key.hashCode());
+        overflowBuckets[bucket >>> 6] |= 1L << bucket;
+    }
+
+    private int nextRandom() {
+        random ^= random << 13;
+        random ^= random >>> 17;
+        random ^= random << 5;
+        return random;
+    }
+
+    // Returns true/false depending on whether a given key exists in the hash table
+    public boolean hasKey(K key) {
+        if (key == null) throw new IllegalArgumentException("Null key");
+        final int hash = key.hashCode();
+        return find(key, hash) != -1 || (stashSize > 0 && findInStash(key) != -1)
+                || (mayOverflow(hash) && overflow.hasKey(key));
+    }
+
+    // Get the value associated with the input key
+    public V get(K key) {
+        if (key == null) throw new IllegalArgumentException("Null key");
+
+        final int hash = key.hashCode();
+        int slot = find(key, hash);
+        if (slot != -1) return values[slot];
+
+        int index = stashSize == 0 ? -1 : findInStash(key);
+        if (index != -1) return stashValues[index];
+        return mayOverflow(hash) ? overflow.get(key) : null;
+    }
+
+    // Removes a key from the hash table and returns the value
+    public V remove(K key) {
+        if (key == null) throw new IllegalArgumentException("Null key");
+
+        final int hash = key.hashCode();
+        int slot = find(key, hash);
+        if (slot == -1) {
+            int index = stashSize == 0 ? -1 : findInStash(key);
+            if (index == -1) {
+                // The overflow flag stays set, it only costs an extra lookup until the next resize
+                if (!mayOverflow(hash) || !overflow.hasKey(key)) return null;
+                keyCount--;
+                return overflow.remove(key);
+            }
+
+            V oldValue = stashValues[index];
+            removeFromStash(index);
+            keyCount--;
+            return oldValue;
+        }
+
+        V oldValue = values[slot];
+        keys[slot] = null;
+        values[slot] = null;
+        keyCount--;
+
+        if (stashSize > 0) moveStashedKeyInto(slot);
+        return oldValue;
+    }
+
+    private void removeFromStash(int index) {
+        stashSize--;
+        stashKeys[index] = stashKeys[stashSize];
+        stashValues[index] = stashValues[stashSize];
+        stashKeys[stashSize] = null;
+        stashValues[stashSize] = null;
+    }
+
+    // Moves a stashed key which has the bucket of a freed slot as a candidate bucket into that slot
+    private void moveStashedKeyInto(int slot) {
+        final int freedBucket = slot / BUCKET_SIZE;
+
+        for (int index = 0; index < stashSize; index++) {
+            K key = stashKeys[index];
+            int hash = key.hashCode();
+            int first = firstBucket(hash), step = bucketStep(key.hashCode2());
+
+            for (int i = 0; i < hashFunctions; i++) {
+                if (bucket(first, step, i) != freedBucket) continue;
+                keys[slot] = key;
+                values[slot] = stashValues[index];
+                hashes[slot] = hash;
+                removeFromStash(index);
+                return;
+            }
+        }
+    }
+
+    // Rebuilds the table with at least the given capacity, doubling it again in the unlikely
+    // case that the keys do not fit. The keys of the old stash and overflow table get another
+    // chance to be placed in the larger table. An extra key which did not fit can be passed along
+    private void resizeTable(int newCapacity, K extraKey, V extraValue) {
+        K[] oldKeys = keys;
+        V[] oldValues = values;
+        K[] oldStashKeys = stashKeys;
+        V[] oldStashValues = stashValues;
+        int oldStashSize = stashSize;
+        HashTableSeparateChaining<K, V> oldOverflow = overflow;
+
+        rebuild:
+        while (true) {
+            allocateTable(newCapacity);
+            resizeCount++;
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null && place(oldKeys[i], oldValues[i]) == -1) {
+                    newCapacity *= 2;
+                    continue rebuild;
+                }
+            }
+            for (int i = 0; i < oldStashSize; i++) {
+                if (place(oldStashKeys[i], oldStashValues[i]) == -1) {
+                    newCapacity *= 2;
+                    continue rebuild;
+                }
+            }
+            if (oldOverflow != null) {
+                for (HashTableSeparateChaining<K, V>.Cursor cursor = oldOverflow.cursor(); cursor.advance(); ) {
+                    if (place(cursor.key(), cursor.value()) == -1) {
+                        newCapacity *= 2;
+                        continue rebuild;
+                    }
+                }
+            }
+            if (extraKey != null && place(extraKey, extraValue) == -1) {
+                newCapacity *= 2;
+                continue rebuild;
+            }
+            return;
+        }
+    }
+
+    // Returns a list of keys present in the hash table
+    public List<K> keys() {
+        List<K> hashTableKeys = new ArrayList<>(size());
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] != null) hashTableKeys.add(keys[i]);
+        }
+        for (int i = 0; i < stashSize; i++) hashTableKeys.add(stashKeys[i]);
+        if (overflow != null) hashTableKeys.addAll(overflow.keys());
+        return hashTableKeys;
+    }
+
+    // Returns a list of non-unique values present in the hash table
+    public List<V> values() {
+        List<V> hashTableValues = new ArrayList<>(size());
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] != null) hashTableValues.add(values[i]);
+        }
+        for (int i = 0; i < stashSize; i++) hashTableValues.add(stashValues[i]);
+        if (overflow != null) hashTableValues.addAll(overflow.values());
+        return hashTableValues;
+    }
+
+    // Return a String representation of this hash-table.
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("{");
+        for (int i = 0; i < capacity; i++)
+            if (keys[i] != null) sb.append(keys[i] + " => " + values[i] + ", ");
+        for (int i = 0; i < stashSize; i++)
+            sb.append(stashKeys[i] + " => " + stashValues[i] + ", ");
+        if (overflow != null) overflow.forEach((key, value) -> sb.append(key + " => " + value + ", "));
+        sb.append("}");
+
+        return sb.toString();
+    }
+}
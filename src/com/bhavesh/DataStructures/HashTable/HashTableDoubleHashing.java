@@ -23,11 +23,27 @@ public class HashTableDoubleHashing<K extends SecondaryHash, V>
         super(capacity, loadFactor);
     }
 
+    public HashTableDoubleHashing(int capacity, double loadFactor, boolean powerOfTwo) {
+        super(capacity, loadFactor, powerOfTwo);
+    }
+
+    // Creates a table which holds expectedSize keys without resizing
+    public static <K extends SecondaryHash, V> HashTableDoubleHashing<K, V> withExpectedSize(int expectedSize) {
+        return withExpectedSize(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    public static <K extends SecondaryHash, V> HashTableDoubleHashing<K, V> withExpectedSize(int expectedSize, double loadFactor) {
+        return new HashTableDoubleHashing<>(capacityFor(expectedSize, loadFactor), loadFactor);
+    }
+
     @Override
     protected void setupProbing(K key) {
         // Cache second hash value
         hash = normalizeIndex(key.hashCode2());
 
+        // In power of two mode any odd step is relatively prime to the capacity
+        if (isPowerOfTwo()) hash |= 1;
+
         // Fail safe to avoid infinite loop
         if (hash == 0) hash = 1;
     }
@@ -0,0 +1,252 @@
+/*
+ * An implementation of a hash-table using separate chaining where the chains are stored
+ * in flat arrays instead of linked lists
+ *
+ * Every entry is an index into the parallel arrays keys, values, hashes and next. A bucket
+ * holds the index of the first entry of its chain and next links the entries of a chain
+ * together, -1 terminating both. Compared to a linked list of Entry objects this needs
+ * no objects per entry at all, and the entries are stored densely which makes scans and
+ * resizes walk memory in order. Removed entries are recycled through a free list.
+ */
+
+package com.bhavesh.DataStructures.HashTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@SuppressWarnings("unchecked")
+public class HashTableFlatSeparateChaining<K, V> {
+
+    private static final int DEFAULT_CAPACITY = 3;
+    private static final double DEFAULT_LOAD_FACTOR = 0.75;
+
+    // Marks the end of a chain and an empty bucket
+    private static final int NIL = -1;
+
+    private double maxLoadFactor;
+    private int capacity, threshold, size = 0;
+
+    // The index of the first entry of every bucket's chain
+    private int[] buckets;
+
+    // The entries. Only the first entryCount indexes have ever been used, removed
+    // entries have a null key and are linked into the free list through next
+    private K[] keys;
+    private V[] values;
+    private int[] hashes;
+    private int[] next;
+    private int entryCount, freeList = NIL;
+
+    public HashTableFlatSeparateChaining() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    public HashTableFlatSeparateChaining(int capacity) {
+        this(capacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    public HashTableFlatSeparateChaining(int capacity, double maxLoadFactor) {
+        if (capacity < 0) throw new IllegalArgumentException("Invalid capacity");
+        if (maxLoadFactor <= 0 || Double.isNaN(maxLoadFactor) || Double.isInfinite(maxLoadFactor))
+            throw new IllegalArgumentException("Invalid maxLoadFactor");
+
+        this.maxLoadFactor = maxLoadFactor;
+        this.capacity = Math.max(DEFAULT_CAPACITY, capacity);
+        threshold = (int) (this.capacity * maxLoadFactor);
+
+        buckets = new int[this.capacity];
+        Arrays.fill(buckets, NIL);
+
+        int entryCapacity = Math.max(DEFAULT_CAPACITY, threshold + 1);
+        keys = (K[]) new Object[entryCapacity];
+        values = (V[]) new Object[entryCapacity];
+        hashes = new int[entryCapacity];
+        next = new int[entryCapacity];
+    }
+
+    // Return the number of elements currently inside the hash table
+    public int size() {
+        return size;
+    }
+
+    // Converts a hash value to an index. Essentially, strips the
+    // negative sign and places the hash value in the domain [0, capacity]
+    private int normalizeIndex(int keyHash) {
+        return (keyHash & 0x7FFFFFFF) % capacity;
+    }
+
+    // Clears all the contents of the hash table
+    public void clear() {
+        Arrays.fill(buckets, NIL);
+        Arrays.fill(keys, 0, entryCount, null);
+        Arrays.fill(values, 0, entryCount, null);
+        entryCount = size = 0;
+        freeList = NIL;
+    }
+
+    public boolean containsKey(K key) {
+        return hasKey(key);
+    }
+
+    // Checks whether a key in present in the hash table
+    public boolean hasKey(K key) {
+        if (key == null) return false;
+        return seekEntry(key.hashCode(), key) != NIL;
+    }
+
+    // Insert, put and add all place a value in the hash table
+    public V put(K key, V value) {
+        return insert(key, value);
+    }
+
+    public V add(K key, V value) {
+        return insert(key, value);
+    }
+
+    public V insert(K key, V value) {
+
+        if (key == null) throw new IllegalArgumentException("Null key");
+        final int hash = key.hashCode();
+
+        int entry = seekEntry(hash, key);
+        if (entry != NIL) {
+            V oldValue = values[entry];
+            values[entry] = value;
+            return oldValue;
+        }
+
+        entry = allocateEntry();
+        int bucketIndex = normalizeIndex(hash);
+        keys[entry] = key;
+        values[entry] = value;
+        hashes[entry] = hash;
+        next[entry] = buckets[bucketIndex];
+        buckets[bucketIndex] = entry;
+
+        if (++size > threshold) resizeTable();
+        return null;
+    }
+
+    // Gets a key's values from the map and returns the value.
+    // Returns null if the value is null AND also
+    // returns null if the key does not exist
+    public V get(K key) {
+
+        if (key == null) return null;
+        int entry = seekEntry(key.hashCode(), key);
+        return entry == NIL ? null : values[entry];
+    }
+
+    // Removes a key from the map and returns the value.
+    // Returns null if the value is null AND also returns
+    // null if the key does not exist
+    public V remove(K key) {
+
+        if (key == null) return null;
+        final int hash = key.hashCode();
+        final int bucketIndex = normalizeIndex(hash);
+
+        for (int entry = buckets[bucketIndex], prev = NIL; entry != NIL; prev = entry, entry = next[entry]) {
+            if (hashes[entry] == hash && keys[entry].equals(key)) {
+
+                // Unlink the entry from its chain
+                if (prev == NIL) buckets[bucketIndex] = next[entry];
+                else next[prev] = next[entry];
+
+                V oldValue = values[entry];
+                freeEntry(entry);
+                size--;
+                return oldValue;
+            }
+        }
+        return null;
+    }
+
+    // Finds the index of the entry holding a key, returns NIL if it does not exist
+    private int seekEntry(int hash, K key) {
+        for (int entry = buckets[normalizeIndex(hash)]; entry != NIL; entry = next[entry]) {
+            if (hashes[entry] == hash && keys[entry].equals(key)) return entry;
+        }
+        return NIL;
+    }
+
+    // Returns the index of an unused entry, recycling removed entries first
+    private int allocateEntry() {
+        if (freeList != NIL) {
+            int entry = freeList;
+            freeList = next[entry];
+            return entry;
+        }
+        if (entryCount == keys.length) growEntries();
+        return entryCount++;
+    }
+
+    // Pushes an entry onto the free list, clearing references to avoid memory leaks
+    private void freeEntry(int entry) {
+        keys[entry] = null;
+        values[entry] = null;
+        next[entry] = freeList;
+        freeList = entry;
+    }
+
+    // Doubles the capacity of the entry arrays
+    private void growEntries() {
+        int entryCapacity = 2 * keys.length;
+        keys = Arrays.copyOf(keys, entryCapacity);
+        values = Arrays.copyOf(values, entryCapacity);
+        hashes = Arrays.copyOf(hashes, entryCapacity);
+        next = Arrays.copyOf(next, entryCapacity);
+    }
+
+    // Resizes the bucket table. The entries stay where they are, only the links of the
+    // live entries are rebuilt using the stored hashes, so the free list stays intact
+    private void resizeTable() {
+
+        capacity *= 2;
+        threshold = (int) (capacity * maxLoadFactor);
+
+        buckets = new int[capacity];
+        Arrays.fill(buckets, NIL);
+
+        for (int entry = 0; entry < entryCount; entry++) {
+            if (keys[entry] == null) continue;
+            int bucketIndex = normalizeIndex(hashes[entry]);
+            next[entry] = buckets[bucketIndex];
+            buckets[bucketIndex] = entry;
+        }
+    }
+
+    // Returns the list of keys found within the hash table
+    public List<K> keys() {
+
+        List<K> hashTableKeys = new ArrayList<>(size());
+        for (int entry = 0; entry < entryCount; entry++) {
+            if (keys[entry] != null) hashTableKeys.add(keys[entry]);
+        }
+        return hashTableKeys;
+    }
+
+    // Returns the list of values found within the hash table
+    public List<V> values() {
+
+        List<V> hashTableValues = new ArrayList<>(size());
+        for (int entry = 0; entry < entryCount; entry++) {
+            if (keys[entry] != null) hashTableValues.add(values[entry]);
+        }
+        return hashTableValues;
+    }
+
+    // Returns a string representation of this hash table
+    @Override
+    public String toString() {
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        for (int entry = 0; entry < entryCount; entry++) {
+            if (keys[entry] != null) sb.append(keys[entry] + " => " + values[entry] + ", ");
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,367 @@
+/*
+ * An implementation of a hash table using open addressing with hopscotch hashing
+ *
+ * Every key is stored within a neighborhood of NEIGHBORHOOD_SIZE slots starting at its home
+ * slot. Each home slot keeps a bitmap (its hop info) of which slots of its neighborhood hold
+ * keys belonging to it, so a lookup only compares the few slots whose bits are set and never
+ * looks past the neighborhood. With the keys, hashes and bitmaps in int sized arrays a whole
+ * neighborhood spans at most two cache lines of each array.
+ *
+ * An insertion takes the first free slot after the home slot. If that slot lies outside the
+ * neighborhood, keys between the two are moved further along (each staying within its own
+ * neighborhood) so that the free slot hops closer to the home slot until it is inside.
+ * Deletions simply clear the slot and the bit, no tombstones are needed.
+ *
+ * Near full load an insertion occasionally finds no key it can move. Rather than doubling
+ * the table for a single key, such keys go to a small separate chaining overflow table (up
+ * to capacity / 2^OVERFLOW_SHIFT of them) and the top bit of their home slot's hop info is
+ * set, so only lookups whose home slot is flagged ever consult the overflow table. This is
+ * what lets the table run at load factors of 90% and more. Keys with identical hash codes
+ * cannot be spread out by growing at all, so once a neighborhood is full of them any further
+ * key with that hash goes to the overflow table however large it is.
+ */
+
+package com.bhavesh.DataStructures.HashTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@SuppressWarnings("unchecked")
+public class HashTableHopscotch<K, V> {
+
+    // The number of slots in a neighborhood, one bit per slot in the low bits of the hop
+    // info. The top bit flags that keys of the home slot were put into the overflow table
+    private static final int NEIGHBORHOOD_SIZE = 31;
+    private static final int NEIGHBORHOOD_MASK = 0x7FFFFFFF;
+    private static final int OVERFLOW_FLAG = 0x80000000;
+
+    // The overflow table may hold capacity >>> OVERFLOW_SHIFT keys before the table grows instead
+    private static final int OVERFLOW_SHIFT = 8;
+
+    // How far past the home slot an insertion looks for a free slot
+    private static final int MAX_FREE_SLOT_DISTANCE = 512;
+
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final double DEFAULT_LOAD_FACTOR = 0.9;
+
+    // 2^32 divided by the golden ratio, used to spread the hash values
+    private static final int FIBONACCI_MULTIPLIER = 0x9E3779B9;
+
+    private double loadFactor;
+    private int capacity, threshold;
+
+    // To keep track of the number of unique keys currently inside the hash table,
+    // including the keys in the overflow table
+    private int keyCount;
+
+    // These arrays store the key-value pairs, the hash code of each key
+    // and the neighborhood bitmap of each home slot
+    private K[] keys;
+    private V[] values;
+    private int[] hashes;
+    private int[] hopInfo;
+
+    // Keys which did not fit into their neighborhood, only allocated when first needed
+    private HashTableSeparateChaining<K, V> overflow;
+
+    public HashTableHopscotch() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    public HashTableHopscotch(int capacity) {
+        this(capacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    public HashTableHopscotch(int capacity, double loadFactor) {
+        if (capacity <= 0) throw new IllegalArgumentException("Invalid capacity");
+
+        if (loadFactor <= 0 || Double.isNaN(loadFactor) || Double.isInfinite(loadFactor))
+            throw new IllegalArgumentException("Invalid load factor");
+
+        this.loadFactor = loadFactor;
+        allocateTable(nextPowerOfTwo(Math.max(DEFAULT_CAPACITY, capacity)));
+    }
+
+    // Returns the smallest power of two greater than or equal to n
+    private static int nextPowerOfTwo(int n) {
+        int pow2 = Integer.highestOneBit(n);
+        return pow2 == n ? n : pow2 << 1;
+    }
+
+    private void allocateTable(int capacity) {
+        this.capacity = capacity;
+
+        // A load factor of one or more means the table only grows once keys no longer fit
+        threshold = (int) Math.min(capacity, capacity * loadFactor);
+
+        keys = (K[]) new Object[capacity];
+        values = (V[]) new Object[capacity];
+        hashes = new int[capacity];
+        hopInfo = new int[capacity];
+        overflow = null;
+    }
+
+    public void clear() {
+        for (int i = 0; i < capacity; i++) {
+            keys[i] = null;
+            values[i] = null;
+            hopInfo[i] = 0;
+        }
+        overflow = null;
+        keyCount = 0;
+    }
+
+    // Returns the number of keys inside the hash table
+    public int size() {
+        return keyCount;
+    }
+
+    // Returns the capacity of the hashtable
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Returns true/false depending on whether the hash table is empty
+    public boolean isEmpty() {
+        return keyCount == 0;
+    }
+
+    // Returns the number of keys which are kept in the overflow table
+    public int overflowSize() {
+        return overflow == null ? 0 : overflow.size();
+    }
+
+    public V put(K key, V value) {
+        return insert(key, value);
+    }
+
+    public V add(K key, V value) {
+        return insert(key, value);
+    }
+
+    // Returns true/false depending on whether a given key exists within the hash table
+    public boolean containsKey(K key) {
+        return hasKey(key);
+    }
+
+    // Converts a key's hash code to its home slot using the top bits of a Fibonacci hash
+    private int homeSlot(int hash) {
+        return (hash * FIBONACCI_MULTIPLIER) >>> (Integer.numberOfLeadingZeros(capacity) + 1);
+    }
+
+    // Finds the slot holding the key, returns -1 if the key is not in the table
+    // (it may still be in the overflow table, see mayOverflow)
+    private int find(K key, int hash) {
+        final int home = homeSlot(hash), mask = capacity - 1;
+
+        for (int bits = hopInfo[home] & NEIGHBORHOOD_MASK; bits != 0; bits &= bits - 1) {
+            int slot = (home + Integer.numberOfTrailingZeros(bits)) & mask;
+            if (hashes[slot] == hash && keys[slot].equals(key)) return slot;
+        }
+        return -1;
+    }
+
+    // Returns true if keys with this hash may have been put into the overflow table
+    private boolean mayOverflow(int hash) {
+        return (hopInfo[homeSlot(hash)] & OVERFLOW_FLAG) != 0;
+    }
+
+    // Place a key-value pair in the hash table. If the value already
+    // exists inside the hash table then the value is updated
+    public V insert(K key, V value) {
+        if (key == null) throw new IllegalArgumentException("Null key");
+        final int hash = key.hashCode();
+
+        int slot = find(key, hash);
+        if (slot != -1) {
+            V oldValue = values[slot];
+            values[slot] = value;
+            return oldValue;
+        }
+        if (mayOverflow(hash) && overflow.hasKey(key)) return overflow.put(key, value);
+
+        if (keyCount >= threshold) resizeTable(capacity * 2);
+        while (!placeOrOverflow(key, value, hash)) resizeTable(capacity * 2);
+        keyCount++;
+        return null;
+    }
+
+    // Places a key which is not in the table, falling back to the overflow table when
+    // it does not fit into its neighborhood. Returns false if the table has to grow
+    private boolean placeOrOverflow(K key, V value, int hash) {
+        if (place(key, value, hash)) return true;
+        if (overflowSize() >= capacity >>> OVERFLOW_SHIFT && !isSaturated(hash)) return false;
+
+        if (overflow == null) overflow = new HashTableSeparateChaining<>();
+        overflow.put(key, value);
+        hopInfo[homeSlot(hash)] |= OVERFLOW_FLAG;
+        return true;
+    }
+
+    // Returns true if the neighborhood of a hash is full of keys with that very hash,
+    // which no amount of growing the table would ever spread out
+    private boolean isSaturated(int hash) {
+        final int home = homeSlot(hash), mask = capacity - 1;
+        if ((hopInfo[home] & NEIGHBORHOOD_MASK) != NEIGHBORHOOD_MASK) return false;
+        for (int offset = 0; offset < NEIGHBORHOOD_SIZE; offset++) {
+            if (hashes[(home + offset) & mask] != hash) return false;
+        }
+        return true;
+    }
+
+    // Places a key which is not in the table inside its neighborhood, hopping the free slot
+    // closer to the home slot as needed. Returns false if the key could not be placed
+    private boolean place(K key, V value, int hash) {
+        final int home = homeSlot(hash), mask = capacity - 1;
+        final int maxDistance = Math.min(capacity, MAX_FREE_SLOT_DISTANCE);
+
+        // Find the first free slot after the home slot
+        int distance = 0;
+        while (distance < maxDistance && keys[(home + distance) & mask] != null) distance++;
+        if (distance == maxDistance) return false;
+
+        // Move the free slot back until it is within the neighborhood of the home slot
+        while (distance >= NEIGHBORHOOD_SIZE) {
+            int hop = hopFreeSlotCloser((home + distance) & mask);
+            if (hop == 0) return false;
+            distance -= hop;
+        }
+
+        int slot = (home + distance) & mask;
+        keys[slot] = key;
+        values[slot] = value;
+        hashes[slot] = hash;
+        hopInfo[home] |= 1 << distance;
+        return true;
+    }
+
+    // Looks for a key in the NEIGHBORHOOD_SIZE - 1 slots before the free slot which can move
+    // into the free slot without leaving its own neighborhood, starting with the key furthest
+    // away. Moves it and returns how many slots the free slot moved back, 0 if no key can move
+    private int hopFreeSlotCloser(int free) {
+        final int mask = capacity - 1;
+
+        for (int distance = NEIGHBORHOOD_SIZE - 1; distance > 0; distance--) {
+            int home = (free - distance) & mask;
+
+            // Only keys of this home slot which come before the free slot can move
+            int movable = hopInfo[home] & ((1 << distance) - 1);
+            if (movable == 0) continue;
+
+            int offset = Integer.numberOfTrailingZeros(movable);
+            int slot = (home + offset) & mask;
+
+            keys[free] = keys[slot];
+            values[free] = values[slot];
+            hashes[free] = hashes[slot];
+            keys[slot] = null;
+            values[slot] = null;
+            hopInfo[home] = (hopInfo[home] & ~(1 << offset)) | (1 << distance);
+            return distance - offset;
+        }
+        return 0;
+    }
+
+    // Returns true/false depending on whether a given key exists in the hash table
+    public boolean hasKey(K key) {
+        if (key == null) throw new IllegalArgumentException("Null key");
+        final int hash = key.hashCode();
+        return find(key, hash) != -1 || (mayOverflow(hash) && overflow.hasKey(key));
+    }
+
+    // Get the value associated with the input key
+    public V get(K key) {
+        if (key == null) throw new IllegalArgumentException("Null key");
+        final int hash = key.hashCode();
+        int slot = find(key, hash);
+        if (slot != -1) return values[slot];
+        return mayOverflow(hash) ? overflow.get(key) : null;
+    }
+
+    // Removes a key from the hash table and returns the value
+    public V remove(K key) {
+        if (key == null) throw new IllegalArgumentException("Null key");
+
+        final int hash = key.hashCode();
+        int slot = find(key, hash);
+        if (slot == -1) {
+            // The overflow flag stays set, it only costs an extra lookup until the next resize
+            if (!mayOverflow(hash) || !overflow.hasKey(key)) return null;
+            keyCount--;
+            return overflow.remove(key);
+        }
+
+        int home = homeSlot(hash);
+        hopInfo[home] &= ~(1 << ((slot - home) & (capacity - 1)));
+
+        V oldValue = values[slot];
+        keys[slot] = null;
+        values[slot] = null;
+        keyCount--;
+        return oldValue;
+    }
+
+    // Rebuilds the table with at least the given capacity, doubling it again in the
+    // unlikely case that the keys do not fit. The keys of the old overflow table get
+    // another chance to be placed in the larger table
+    private void resizeTable(int newCapacity) {
+        K[] oldKeys = keys;
+        V[] oldValues = values;
+        int[] oldHashes = hashes;
+        HashTableSeparateChaining<K, V> oldOverflow = overflow;
+
+        rebuild:
+        while (true) {
+            allocateTable(newCapacity);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null && !placeOrOverflow(oldKeys[i], oldValues[i], oldHashes[i])) {
+                    newCapacity *= 2;
+                    continue rebuild;
+                }
+            }
+            if (oldOverflow != null) {
+                for (HashTableSeparateChaining<K, V>.Cursor cursor = oldOverflow.cursor(); cursor.advance(); ) {
+                    if (!placeOrOverflow(cursor.key(), cursor.value(), cursor.key().hashCode())) {
+                        newCapacity *= 2;
+                        continue rebuild;
+                    }
+                }
+            }
+            return;
+        }
+    }
+
+    // Returns a list of keys present in the hash table
+    public List<K> keys() {
+        List<K> hashTableKeys = new ArrayList<>(size());
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] != null) hashTableKeys.add(keys[i]);
+        }
+        if (overflow != null) hashTableKeys.addAll(overflow.keys());
+        return hashTableKeys;
+    }
+
+    // Returns a list of non-unique values present in the hash table
+    public List<V> values() {
+        List<V> hashTableValues = new ArrayList<>(size());
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] != null) hashTableValues.add(values[i]);
+        }
+        if (overflow != null) hashTableValues.addAll(overflow.values());
+        return hashTableValues;
+    }
+
+    // Return a String representation of this hash-table.
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("{");
+        for (int i = 0; i < capacity; i++)
+            if (keys[i] != null) sb.append(keys[i] + " => " + values[i] + ", ");
+        if (overflow != null) overflow.forEach((key, value) -> sb.append(key + " => " + value + ", "));
+        sb.append("}");
+
+        return sb.toString();
+    }
+}
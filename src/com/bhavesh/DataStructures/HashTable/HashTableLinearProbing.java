@@ -1,6 +1,12 @@
 /*
  * An implementation of a hash table using open addressing with linear probing as a collision
  * resolution technique
+ *
+ * The table can optionally run in Robin Hood mode. Every slot then remembers how far its
+ * key is from its home slot (the probe length) and an insertion takes the slot of any key
+ * that is closer to home than the key being inserted, which keeps all probe lengths short
+ * even at high load factors. Deletions shift the following keys of the run one step back
+ * instead of leaving a TOMBSTONE behind.
  */
 
 package com.bhavesh.DataStructures.HashTable;
@@ -12,16 +18,57 @@ public class HashTableLinearProbing<K, V> extends HashTableOpenAddressingBase<K,
     // the GCD(capacity, LINEAR_CONSTANT) = 1 so that all buckets can be probed.
     private static final int LINEAR_CONSTANT = 17;
 
+    // Whether insertions and deletions use the Robin Hood strategy
+    private final boolean robinHood;
+
+    // The distance (in probes) of each slot's key from its home slot, only used in Robin Hood mode
+    private int[] probeLengths;
+
     public HashTableLinearProbing() {
         super();
+        robinHood = false;
     }
 
     public HashTableLinearProbing(int capacity) {
         super(capacity);
+        robinHood = false;
+    }
+
+    public HashTableLinearProbing(int capacity, double loadFactor) {
+        this(capacity, loadFactor, false);
+    }
+
+    public HashTableLinearProbing(int capacity, double loadFactor, boolean robinHood) {
+        this(capacity, loadFactor, robinHood, false);
+    }
+
+    public HashTableLinearProbing(int capacity, double loadFactor, boolean robinHood, boolean powerOfTwo) {
+        super(capacity, loadFactor, powerOfTwo);
+        this.robinHood = robinHood;
+        if (robinHood) probeLengths = new int[this.capacity];
     }
 
-    public HashTableLinearProbing(int capacity, int loadFactor) {
-        super(capacity, loadFactor);
+    // Creates a table which holds expectedSize keys without resizing
+    public static <K, V> HashTableLinearProbing<K, V> withExpectedSize(int expectedSize) {
+        return withExpectedSize(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    public static <K, V> HashTableLinearProbing<K, V> withExpectedSize(int expectedSize, double loadFactor) {
+        return new HashTableLinearProbing<>(capacityFor(expectedSize, loadFactor), loadFactor);
+    }
+
+    // Returns true if this table uses Robin Hood insertion and backward shift deletion
+    public boolean isRobinHood() {
+        return robinHood;
+    }
+
+    // Robin Hood mode keeps its runs ordered by probe length, which cannot
+    // be maintained while keys are split between an old and a new table
+    @Override
+    public void setIncrementalResize(boolean incrementalResize) {
+        if (robinHood && incrementalResize)
+            throw new UnsupportedOperationException("Incremental resize is not supported in Robin Hood mode");
+        super.setIncrementalResize(incrementalResize);
     }
 
     @Override
@@ -41,4 +88,164 @@ public class HashTableLinearProbing<K, V> extends HashTableOpenAddressingBase<K,
             capacity++;
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    protected void allocateSlotState(int capacity) {
+        if (robinHood) probeLengths = new int[capacity];
+    }
+
+    @Override
+    protected int snapshotVariant() {
+        return robinHood ? 1 : 0;
+    }
+
+    // Recomputes the probe length of every key after a snapshot has been loaded
+    @Override
+    protected void restoreSlotState() {
+        if (!robinHood) return;
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] == null || keys[i] == TOMBSTONE) continue;
+            int dist = 0;
+            for (int j = hashIndex(hashes[i]); j != i; j = nextSlot(j)) dist++;
+            probeLengths[i] = dist;
+        }
+    }
+
+    @Override
+    protected V insert(K key, V value, int hash) {
+        if (!robinHood) return super.insert(key, value, hash);
+
+        if (usedBuckets >= threshold) resizeTable();
+        return robinHoodInsert(key, value, hash);
+    }
+
+    @Override
+    protected V insertWithoutResize(K key, V value, int hash) {
+        if (!robinHood) return super.insertWithoutResize(key, value, hash);
+        return robinHoodInsert(key, value, hash);
+    }
+
+    private V robinHoodInsert(K key, V value, int hash) {
+        for (int i = hashIndex(hash), dist = 0; ; i = nextSlot(i), dist++) {
+
+            // Reached the end of the run so the key can be placed here
+            if (keys[i] == null) {
+                recordProbeLength(dist + 1);
+                place(i, key, value, hash, dist);
+                usedBuckets++;
+                keyCount++;
+                return null;
+            }
+
+            // A key can only sit in the slot whose probe length equals its own
+            // distance from home, so the probe lengths filter most equals() calls
+            if (probeLengths[i] == dist && hashes[i] == hash && keys[i].equals(key)) {
+                recordProbeLength(dist + 1);
+                V oldValue = values[i];
+                values[i] = value;
+                return oldValue;
+            }
+
+            // The resident key is richer (closer to home) than the key being inserted.
+            // By the Robin Hood invariant the key cannot appear later in the run, so
+            // take the slot and carry the displaced key further along
+            if (probeLengths[i] < dist) {
+                recordProbeLength(dist + 1);
+                K displacedKey = keys[i];
+                V displacedValue = values[i];
+                int displacedHash = hashes[i];
+                int displacedDist = probeLengths[i];
+                place(i, key, value, hash, dist);
+                placeDisplaced(nextSlot(i), displacedKey, displacedValue, displacedHash, displacedDist + 1);
+                usedBuckets++;
+                keyCount++;
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public boolean hasKey(K key) {
+        if (!robinHood) return super.hasKey(key);
+        if (key == null) throw new IllegalArgumentException("Null key");
+        return robinHoodIndexOf(key, key.hashCode()) != -1;
+    }
+
+    @Override
+    public V get(K key) {
+        if (!robinHood) return super.get(key);
+        if (key == null) throw new IllegalArgumentException("Null key");
+        int i = robinHoodIndexOf(key, key.hashCode());
+        return i == -1 ? null : values[i];
+    }
+
+    @Override
+    public V remove(K key) {
+        if (!robinHood) return super.remove(key);
+        if (key == null) throw new IllegalArgumentException("Null key");
+
+        int i = robinHoodIndexOf(key, key.hashCode());
+        if (i == -1) return null;
+        V oldValue = values[i];
+
+        // Backward shift deletion: pull every following key of the run one step closer
+        // to its home slot until we hit an empty slot or a key that is already at home
+        for (int j = nextSlot(i); keys[j] != null && probeLengths[j] > 0; i = j, j = nextSlot(j))
+            place(i, keys[j], values[j], hashes[j], probeLengths[j] - 1);
+
+        keys[i] = null;
+        values[i] = null;
+        usedBuckets--;
+        keyCount--;
+        shrinkIfSparse();
+        return oldValue;
+    }
+
+    // Finds the slot of a key in Robin Hood mode, returns -1 if the key does not exist
+    private int robinHoodIndexOf(K key, int hash) {
+        for (int i = hashIndex(hash), dist = 0; ; i = nextSlot(i), dist++) {
+
+            // Once we pass a key that is closer to home than we would be,
+            // the key we are looking for cannot be in the table
+            if (keys[i] == null || probeLengths[i] < dist) {
+                recordProbeLength(dist + 1);
+                return -1;
+            }
+            if (probeLengths[i] == dist && hashes[i] == hash && keys[i].equals(key)) {
+                recordProbeLength(dist + 1);
+                return i;
+            }
+        }
+    }
+
+    // Keeps swapping the carried entry with richer entries until it finds an empty slot
+    private void placeDisplaced(int i, K key, V value, int hash, int dist) {
+        for (; keys[i] != null; i = nextSlot(i), dist++) {
+            if (probeLengths[i] < dist) {
+                K displacedKey = keys[i];
+                V displacedValue = values[i];
+                int displacedHash = hashes[i];
+                int displacedDist = probeLengths[i];
+                place(i, key, value, hash, dist);
+                key = displacedKey;
+                value = displacedValue;
+                hash = displacedHash;
+                dist = displacedDist;
+            }
+        }
+        place(i, key, value, hash, dist);
+    }
+
+    private void place(int i, K key, V value, int hash, int dist) {
+        keys[i] = key;
+        values[i] = value;
+        hashes[i] = hash;
+        probeLengths[i] = dist;
+    }
+
+    // Every key probes the same fixed stride, so the slot after i is the
+    // next probe position for any key whose run passes through i
+    private int nextSlot(int i) {
+        return normalizeIndex(i + LINEAR_CONSTANT);
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * An implementation of a primitive long to long hash table using open addressing with
+ * linear probing as a collision resolution technique
+ *
+ * Keys and values are stored in primitive arrays so no boxing takes place on any operation.
+ * Instead of an object tombstone, two key values are reserved as sentinels inside the key
+ * array: FREE_KEY marks an empty slot and REMOVED_KEY marks a deleted slot. The sentinel
+ * keys themselves can still be stored, their values are simply kept outside the arrays.
+ */
+
+package com.bhavesh.DataStructures.HashTable;
+
+public class HashTableLongLong {
+
+    // Sentinel values used inside the key array. FREE_KEY is zero so that
+    // a freshly allocated key array is already completely empty
+    private static final long FREE_KEY = 0L;
+    private static final long REMOVED_KEY = Long.MIN_VALUE;
+
+    private static final int DEFAULT_CAPACITY = 7;
+    private static final double DEFAULT_LOAD_FACTOR = 0.65;
+
+    private double loadFactor;
+    private int capacity, threshold;
+
+    // To keep track of the total number of used buckets inside the
+    // hash table (includes cells marked as deleted)
+    private int usedBuckets;
+
+    // To keep track of the number of unique keys currently inside the hash table
+    private int keyCount;
+
+    // These arrays store the key-value pairs
+    private long[] keys;
+    private long[] values;
+
+    // The values of the two sentinel keys are stored outside the arrays
+    private boolean hasFreeKey, hasRemovedKey;
+    private long freeKeyValue, removedKeyValue;
+
+    // The value returned when a key is not present in the hash table
+    private final long noEntryValue;
+
+    public HashTableLongLong() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    public HashTableLongLong(int capacity) {
+        this(capacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    public HashTableLongLong(int capacity, double loadFactor) {
+        this(capacity, loadFactor, 0L);
+    }
+
+    public HashTableLongLong(int capacity, double loadFactor, long noEntryValue) {
+        if (capacity <= 0) throw new IllegalArgumentException("Invalid capacity");
+
+        if (loadFactor <= 0 || loadFactor >= 1 || Double.isNaN(loadFactor))
+            throw new IllegalArgumentException("Invalid load factor");
+
+        this.loadFactor = loadFactor;
+        this.noEntryValue = noEntryValue;
+        this.capacity = Math.max(DEFAULT_CAPACITY, capacity);
+        threshold = (int) (this.capacity * loadFactor);
+
+        keys = new long[this.capacity];
+        values = new long[this.capacity];
+    }
+
+    public void clear() {
+        for (int i = 0; i < capacity; i++) {
+            keys[i] = FREE_KEY;
+            values[i] = 0L;
+        }
+        hasFreeKey = hasRemovedKey = false;
+        keyCount = usedBuckets = 0;
+    }
+
+    // Returns the number of keys inside the hash table
+    public int size() {
+        return keyCount;
+    }
+
+    // Returns the capacity of the hashtable
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Returns true/false depending on whether the hash table is empty
+    public boolean isEmpty() {
+        return keyCount == 0;
+    }
+
+    // Returns the value used to signal that a key is not present
+    public long getNoEntryValue() {
+        return noEntryValue;
+    }
+
+    // Converts a key to an index. Essentially, this strips the
+    // negative sign and places the hash value in the domain [0, capacity)
+    private int normalizeIndex(long key) {
+        return (Long.hashCode(key) & 0x7FFFFFFF) % capacity;
+    }
+
+    // Moves to the next slot in the probing sequence
+    private int nextIndex(int i) {
+        return ++i == capacity ? 0 : i;
+    }
+
+    // Place a key-value pair in the hash table. If the key already exists inside
+    // the hash table then the value is updated and the previous value is returned,
+    // otherwise the no entry value is returned
+    public long put(long key, long value) {
+        if (key == FREE_KEY) {
+            long oldValue = hasFreeKey ? freeKeyValue : noEntryValue;
+            if (!hasFreeKey) keyCount++;
+            hasFreeKey = true;
+            freeKeyValue = value;
+            return oldValue;
+        }
+        if (key == REMOVED_KEY) {
+            long oldValue = hasRemovedKey ? removedKeyValue : noEntryValue;
+            if (!hasRemovedKey) keyCount++;
+            hasRemovedKey = true;
+            removedKeyValue = value;
+            return oldValue;
+        }
+
+        if (usedBuckets >= threshold) resizeTable();
+
+        for (int i = normalizeIndex(key), j = -1; ; i = nextIndex(i)) {
+
+            // The current slot was previously deleted
+            if (keys[i] == REMOVED_KEY) {
+                if (j == -1) j = i;
+            }
+
+            // The key already exists in the hash table, so update its value
+            else if (keys[i] == key) {
+                long oldValue = values[i];
+                if (j == -1) {
+                    values[i] = value;
+                } else {
+                    keys[i] = REMOVED_KEY;
+                    keys[j] = key;
+                    values[j] = value;
+                }
+                return oldValue;
+            }
+
+            // Current cell is free so an insertion can take place, preferring
+            // the first deleted bucket seen along the way
+            else if (keys[i] == FREE_KEY) {
+                if (j == -1) {
+                    usedBuckets++;
+                    j = i;
+                }
+                keyCount++;
+                keys[j] = key;
+                values[j] = value;
+                return noEntryValue;
+            }
+        }
+    }
+
+    // Returns true/false depending on whether a given key exists in the hash table
+    public boolean containsKey(long key) {
+        if (key == FREE_KEY) return hasFreeKey;
+        if (key == REMOVED_KEY) return hasRemovedKey;
+        return indexOf(key) != -1;
+    }
+
+    // Get the value associated with the input key, or the no entry value if absent
+    public long get(long key) {
+        return getOrDefault(key, noEntryValue);
+    }
+
+    // Get the value associated with the input key, or defaultValue if absent
+    public long getOrDefault(long key, long defaultValue) {
+        if (key == FREE_KEY) return hasFreeKey ? freeKeyValue : defaultValue;
+        if (key == REMOVED_KEY) return hasRemovedKey ? removedKeyValue : defaultValue;
+        int i = indexOf(key);
+        return i == -1 ? defaultValue : values[i];
+    }
+
+    // Removes a key from the hash table and returns the value, or
+    // the no entry value if the key does not exist
+    public long remove(long key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) return noEntryValue;
+            hasFreeKey = false;
+            keyCount--;
+            return freeKeyValue;
+        }
+        if (key == REMOVED_KEY) {
+            if (!hasRemovedKey) return noEntryValue;
+            hasRemovedKey = false;
+            keyCount--;
+            return removedKeyValue;
+        }
+
+        int i = indexOf(key);
+        if (i == -1) return noEntryValue;
+
+        keyCount--;
+        keys[i] = REMOVED_KEY;
+        return values[i];
+    }
+
+    // Finds the slot holding the given (non sentinel) key, returns -1 if it does not exist
+    private int indexOf(long key) {
+        for (int i = normalizeIndex(key); ; i = nextIndex(i)) {
+            if (keys[i] == key) return i;
+            if (keys[i] == FREE_KEY) return -1;
+        }
+    }
+
+    // Double the size of the hash table
+    private void resizeTable() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+
+        // Only grow when the table is actually full of live keys, if most of
+        // the used buckets are deleted cells rehashing at the same size is enough
+        if (keyCount >= usedBuckets / 2) capacity = (2 * capacity) + 1;
+        threshold = (int) (capacity * loadFactor);
+
+        keys = new long[capacity];
+        values = new long[capacity];
+        usedBuckets = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key == FREE_KEY || key == REMOVED_KEY) continue;
+
+            int j = normalizeIndex(key);
+            while (keys[j] != FREE_KEY) j = nextIndex(j);
+            keys[j] = key;
+            values[j] = oldValues[i];
+            usedBuckets++;
+        }
+    }
+
+    // Returns the keys present in the hash table
+    public long[] keys() {
+        long[] hashTableKeys = new long[keyCount];
+        int k = 0;
+        if (hasFreeKey) hashTableKeys[k++] = FREE_KEY;
+        if (hasRemovedKey) hashTableKeys[k++] = REMOVED_KEY;
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] != FREE_KEY && keys[i] != REMOVED_KEY)
+                hashTableKeys[k++] = keys[i];
+        }
+        return hashTableKeys;
+    }
+
+    // Returns the non-unique values present in the hash table
+    public long[] values() {
+        long[] hashTableValues = new long[keyCount];
+        int k = 0;
+        if (hasFreeKey) hashTableValues[k++] = freeKeyValue;
+        if (hasRemovedKey) hashTableValues[k++] = removedKeyValue;
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] != FREE_KEY && keys[i] != REMOVED_KEY)
+                hashTableValues[k++] = values[i];
+        }
+        return hashTableValues;
+    }
+
+    // Return a String representation of this hash-table.
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("{");
+        if (hasFreeKey) sb.append(FREE_KEY + " => " + freeKeyValue + ", ");
+        if (hasRemovedKey) sb.append(REMOVED_KEY + " => " + removedKeyValue + ", ");
+        for (int i = 0; i < capacity; i++)
+            if (keys[i] != FREE_KEY && keys[i] != REMOVED_KEY) sb.append(keys[i] + " => " + values[i] + ", ");
+        sb.append("}");
+
+        return sb.toString();
+    }
+}
@@ -0,0 +1,486 @@
+/*
+ * An implementation of a primitive long to long hash table using open addressing which
+ * lives in a memory mapped file instead of on the heap
+ *
+ * Every slot is a fixed 16 byte record (the key followed by the value) so a lookup reads
+ * the records straight out of the mapped file without deserializing anything, and only
+ * the pages that are touched have to be in memory. The table can be closed and opened
+ * again from the file, e.g. after a restart, without rebuilding it.
+ *
+ * The capacity is always a power of two and the slots can be probed linearly, quadratically
+ * or with double hashing, using the same probing functions as HashTableLinearProbing,
+ * HashTableQuadraticProbing and HashTableDoubleHashing. As in HashTableLongLong two key
+ * values are reserved as sentinels for empty and deleted slots, and the values of these
+ * two keys are kept in the file header instead.
+ *
+ * File layout (little endian):
+ *   header   HEADER_SIZE bytes: magic, version, probing, capacity, key count, used
+ *            buckets, load factor, sentinel key flags and values, no entry value
+ *   records  capacity * RECORD_SIZE bytes
+ *
+ * A single mapping cannot exceed 2GB, so the records are mapped in chunks of 2^30 bytes.
+ * Growing the table builds the larger table in a new file which then replaces the old one.
+ */
+
+package com.bhavesh.DataStructures.HashTable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class HashTableMappedLongLong implements Closeable {
+
+    public enum Probing {
+        LINEAR,
+        QUADRATIC,
+        DOUBLE_HASHING
+    }
+
+    // Sentinel values used inside the records. FREE_KEY is zero so that
+    // a freshly created (zero filled) file is already completely empty
+    private static final long FREE_KEY = 0L;
+    private static final long REMOVED_KEY = Long.MIN_VALUE;
+
+    private static final long DEFAULT_CAPACITY = 16;
+    private static final double DEFAULT_LOAD_FACTOR = 0.65;
+
+    // The same constant as in HashTableLinearProbing, any odd stride reaches
+    // every slot of a power of two sized table
+    private static final int LINEAR_CONSTANT = 17;
+
+    private static final long MAGIC = 0x48544D4150504544L;
+    private static final int VERSION = 1;
+
+    // Header field offsets
+    private static final int MAGIC_OFFSET = 0, VERSION_OFFSET = 8, PROBING_OFFSET = 12,
+            CAPACITY_OFFSET = 16, KEY_COUNT_OFFSET = 24, USED_BUCKETS_OFFSET = 32,
+            LOAD_FACTOR_OFFSET = 40, FLAGS_OFFSET = 48, FREE_KEY_VALUE_OFFSET = 56,
+            REMOVED_KEY_VALUE_OFFSET = 64, NO_ENTRY_VALUE_OFFSET = 72;
+    private static final int HEADER_SIZE = 128;
+
+    private static final int HAS_FREE_KEY = 1, HAS_REMOVED_KEY = 2;
+
+    // Records are 16 bytes and every chunk holds 2^26 of them
+    private static final int RECORD_SIZE = 16;
+    private static final int CHUNK_SHIFT = 30;
+    private static final int RECORDS_PER_CHUNK_SHIFT = CHUNK_SHIFT - 4;
+    private static final long RECORD_MASK = (1L << RECORDS_PER_CHUNK_SHIFT) - 1;
+
+    private final Path path;
+    private final Probing probing;
+    private final double loadFactor;
+    private final long noEntryValue;
+
+    private long capacity, threshold;
+
+    // To keep track of the total number of used buckets inside the
+    // hash table (includes cells marked as deleted)
+    private long usedBuckets;
+
+    // To keep track of the number of unique keys currently inside the hash table
+    private long keyCount;
+
+    // The values of the two sentinel keys are stored in the header
+    private boolean hasFreeKey, hasRemovedKey;
+    private long freeKeyValue, removedKeyValue;
+
+    private MappedByteBuffer header;
+    private MappedByteBuffer[] chunks;
+
+    // Creates a new table in the given file, replacing any existing file
+    public HashTableMappedLongLong(Path path, long capacity) throws IOException {
+        this(path, capacity, DEFAULT_LOAD_FACTOR, Probing.LINEAR, 0L);
+    }
+
+    public HashTableMappedLongLong(Path path, long capacity, double loadFactor, Probing probing,
+                                   long noEntryValue) throws IOException {
+        if (capacity <= 0) throw new IllegalArgumentException("Invalid capacity");
+
+        if (loadFactor <= 0 || loadFactor >= 1 || Double.isNaN(loadFactor))
+            throw new IllegalArgumentException("Invalid load factor");
+
+        if (probing == null) throw new IllegalArgumentException("Null probing");
+
+        this.path = path;
+        this.probing = probing;
+        this.loadFactor = loadFactor;
+        this.noEntryValue = noEntryValue;
+        this.capacity = nextPowerOfTwo(Math.max(DEFAULT_CAPACITY, capacity));
+        threshold = (long) (this.capacity * loadFactor);
+
+        Files.deleteIfExists(path);
+        map(path, this.capacity);
+
+        header.putLong(MAGIC_OFFSET, MAGIC);
+        header.putInt(VERSION_OFFSET, VERSION);
+        header.putInt(PROBING_OFFSET, probing.ordinal());
+        header.putLong(CAPACITY_OFFSET, this.capacity);
+        header.putDouble(LOAD_FACTOR_OFFSET, loadFactor);
+        header.putLong(NO_ENTRY_VALUE_OFFSET, noEntryValue);
+        writeCounts();
+    }
+
+    // Opens a table previously created in the given file
+    public HashTableMappedLongLong(Path path) throws IOException {
+        this.path = path;
+
+        long fileSize = Files.size(path);
+        if (fileSize < HEADER_SIZE) throw new IOException("Not a hash table file: " + path);
+
+        long storedCapacity;
+        int storedProbing;
+        double storedLoadFactor;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer storedHeader = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            storedHeader.order(ByteOrder.LITTLE_ENDIAN);
+            if (storedHeader.getLong(MAGIC_OFFSET) != MAGIC || storedHeader.getInt(VERSION_OFFSET) != VERSION)
+                throw new IOException("Not a hash table file: " + path);
+            storedCapacity = storedHeader.getLong(CAPACITY_OFFSET);
+            storedProbing = storedHeader.getInt(PROBING_OFFSET);
+            storedLoadFactor = storedHeader.getDouble(LOAD_FACTOR_OFFSET);
+        }
+        if (Long.bitCount(storedCapacity) != 1 || fileSize != HEADER_SIZE + storedCapacity * RECORD_SIZE
+                || storedProbing < 0 || storedProbing >= Probing.values().length
+                || !(storedLoadFactor > 0 && storedLoadFactor < 1))
+            throw new IOException("Corrupt hash table file: " + path);
+
+        map(path, storedCapacity);
+        capacity = storedCapacity;
+        probing = Probing.values()[storedProbing];
+        loadFactor = storedLoadFactor;
+        noEntryValue = header.getLong(NO_ENTRY_VALUE_OFFSET);
+        threshold = (long) (capacity * loadFactor);
+
+        keyCount = header.getLong(KEY_COUNT_OFFSET);
+        usedBuckets = header.getLong(USED_BUCKETS_OFFSET);
+        int flags = header.getInt(FLAGS_OFFSET);
+        hasFreeKey = (flags & HAS_FREE_KEY) != 0;
+        hasRemovedKey = (flags & HAS_REMOVED_KEY) != 0;
+        freeKeyValue = header.getLong(FREE_KEY_VALUE_OFFSET);
+        removedKeyValue = header.getLong(REMOVED_KEY_VALUE_OFFSET);
+    }
+
+    // Maps the header and the records of a file holding the given number of slots. The
+    // mappings stay valid after the channel is closed, so no file handle is kept open
+    private void map(Path file, long slots) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+
+            header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+
+            long recordBytes = slots * RECORD_SIZE;
+            chunks = new MappedByteBuffer[(int) ((recordBytes + (1L << CHUNK_SHIFT) - 1) >>> CHUNK_SHIFT)];
+            for (int c = 0; c < chunks.length; c++) {
+                long position = (long) c << CHUNK_SHIFT;
+                long size = Math.min(1L << CHUNK_SHIFT, recordBytes - position);
+                chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + position, size);
+                chunks[c].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        }
+    }
+
+    // Returns the smallest power of two greater than or equal to n
+    private static long nextPowerOfTwo(long n) {
+        long pow2 = Long.highestOneBit(n);
+        return pow2 == n ? n : pow2 << 1;
+    }
+
+    // Returns the number of keys inside the hash table
+    public long size() {
+        return keyCount;
+    }
+
+    // Returns the capacity of the hashtable
+    public long getCapacity() {
+        return capacity;
+    }
+
+    // Returns true/false depending on whether the hash table is empty
+    public boolean isEmpty() {
+        return keyCount == 0;
+    }
+
+    public Probing getProbing() {
+        return probing;
+    }
+
+    // Returns the value used to signal that a key is not present
+    public long getNoEntryValue() {
+        return noEntryValue;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /* Record access */
+
+    private MappedByteBuffer chunkOf(long slot) {
+        return chunks[(int) (slot >>> RECORDS_PER_CHUNK_SHIFT)];
+    }
+
+    private static int offsetOf(long slot) {
+        return (int) ((slot & RECORD_MASK) * RECORD_SIZE);
+    }
+
+    private long keyAt(long slot) {
+        return chunkOf(slot).getLong(offsetOf(slot));
+    }
+
+    private long valueAt(long slot) {
+        return chunkOf(slot).getLong(offsetOf(slot) + 8);
+    }
+
+    private void setKey(long slot, long key) {
+        chunkOf(slot).putLong(offsetOf(slot), key);
+    }
+
+    private void setValue(long slot, long value) {
+        chunkOf(slot).putLong(offsetOf(slot) + 8, value);
+    }
+
+    private void setRecord(long slot, long key, long value) {
+        MappedByteBuffer chunk = chunkOf(slot);
+        int offset = offsetOf(slot);
+        chunk.putLong(offset, key);
+        chunk.putLong(offset + 8, value);
+    }
+
+    // Keeps the header in step with the table, so the file is always ready to be reopened
+    private void writeCounts() {
+        header.putLong(KEY_COUNT_OFFSET, keyCount);
+        header.putLong(USED_BUCKETS_OFFSET, usedBuckets);
+        header.putInt(FLAGS_OFFSET, (hasFreeKey ? HAS_FREE_KEY : 0) | (hasRemovedKey ? HAS_REMOVED_KEY : 0));
+        header.putLong(FREE_KEY_VALUE_OFFSET, freeKeyValue);
+        header.putLong(REMOVED_KEY_VALUE_OFFSET, removedKeyValue);
+    }
+
+    /* Probing */
+
+    // Mixes all the bits of a key (SplitMix64 finalizer), the low bits pick the home slot
+    // and the high bits the step of double hashing
+    private static long mix(long key) {
+        key = (key ^ (key >>> 30)) * 0xBF58476D1CE4E5B9L;
+        key = (key ^ (key >>> 27)) * 0x94D049BB133111EBL;
+        return key ^ (key >>> 31);
+    }
+
+    // Returns the offset of the x'th probe from the home slot. In a power of two sized
+    // table every probing scheme reaches all slots: the linear constant and the double
+    // hashing step are odd, and the quadratic probe uses the triangular numbers
+    private static long probe(Probing probing, long hash, long x) {
+        switch (probing) {
+            case LINEAR:
+                return LINEAR_CONSTANT * x;
+            case QUADRATIC:
+                return (x * x + x) >> 1;
+            default:
+                return x * ((hash >>> 32) | 1);
+        }
+    }
+
+    // Returns the slot holding the given (non sentinel) key, or -1 if it does not exist
+    private long indexOf(long key) {
+        final long hash = mix(key), mask = capacity - 1, home = hash & mask;
+
+        for (long i = home, x = 1; ; i = (home + probe(probing, hash, x++)) & mask) {
+            long slotKey = keyAt(i);
+            if (slotKey == key) return i;
+            if (slotKey == FREE_KEY) return -1;
+        }
+    }
+
+    /* Hash table operations */
+
+    // Place a key-value pair in the hash table. If the key already exists inside
+    // the hash table then the value is updated and the previous value is returned,
+    // otherwise the no entry value is returned. Throws an UncheckedIOException if
+    // the table has to grow and the larger file cannot be written
+    public long put(long key, long value) {
+        long oldValue = noEntryValue;
+
+        if (key == FREE_KEY) {
+            if (hasFreeKey) oldValue = freeKeyValue;
+            else keyCount++;
+            hasFreeKey = true;
+            freeKeyValue = value;
+        } else if (key == REMOVED_KEY) {
+            if (hasRemovedKey) oldValue = removedKeyValue;
+            else keyCount++;
+            hasRemovedKey = true;
+            removedKeyValue = value;
+        } else {
+            if (usedBuckets >= threshold) resizeTable();
+            oldValue = insert(key, value);
+        }
+
+        writeCounts();
+        return oldValue;
+    }
+
+    private long insert(long key, long value) {
+        final long hash = mix(key), mask = capacity - 1, home = hash & mask;
+
+        for (long i = home, j = -1, x = 1; ; i = (home + probe(probing, hash, x++)) & mask) {
+            long slotKey = keyAt(i);
+
+            // The current slot was previously deleted
+            if (slotKey == REMOVED_KEY) {
+                if (j == -1) j = i;
+            }
+
+            // The key already exists in the hash table, so update its value
+            else if (slotKey == key) {
+                long oldValue = valueAt(i);
+                if (j == -1) {
+                    setValue(i, value);
+                } else {
+                    setKey(i, REMOVED_KEY);
+                    setRecord(j, key, value);
+                }
+                return oldValue;
+            }
+
+            // Current cell is free so an insertion can take place, preferring
+            // the first deleted bucket seen along the way
+            else if (slotKey == FREE_KEY) {
+                if (j == -1) {
+                    usedBuckets++;
+                    j = i;
+                }
+                keyCount++;
+                setRecord(j, key, value);
+                return noEntryValue;
+            }
+        }
+    }
+
+    // Returns true/false depending on whether a given key exists in the hash table
+    public boolean containsKey(long key) {
+        if (key == FREE_KEY) return hasFreeKey;
+        if (key == REMOVED_KEY) return hasRemovedKey;
+        return indexOf(key) != -1;
+    }
+
+    // Get the value associated with the input key, or the no entry value if absent
+    public long get(long key) {
+        return getOrDefault(key, noEntryValue);
+    }
+
+    // Get the value associated with the input key, or defaultValue if absent
+    public long getOrDefault(long key, long defaultValue) {
+        if (key == FREE_KEY) return hasFreeKey ? freeKeyValue : defaultValue;
+        if (key == REMOVED_KEY) return hasRemovedKey ? removedKeyValue : defaultValue;
+        long i = indexOf(key);
+        return i == -1 ? defaultValue : valueAt(i);
+    }
+
+    // Removes a key from the hash table and returns the value, or
+    // the no entry value if the key does not exist
+    public long remove(long key) {
+        long oldValue;
+
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) return noEntryValue;
+            hasFreeKey = false;
+            oldValue = freeKeyValue;
+        } else if (key == REMOVED_KEY) {
+            if (!hasRemovedKey) return noEntryValue;
+            hasRemovedKey = false;
+            oldValue = removedKeyValue;
+        } else {
+            long i = indexOf(key);
+            if (i == -1) return noEntryValue;
+            oldValue = valueAt(i);
+            setKey(i, REMOVED_KEY);
+        }
+
+        keyCount--;
+        writeCounts();
+        return oldValue;
+    }
+
+    // Empties the table, keeping its capacity
+    public void clear() {
+        for (long i = 0; i < capacity; i++) setRecord(i, FREE_KEY, 0L);
+        hasFreeKey = hasRemovedKey = false;
+        freeKeyValue = removedKeyValue = 0L;
+        keyCount = usedBuckets = 0;
+        writeCounts();
+    }
+
+    // Double the size of the hash table. The larger table is written to a temporary file
+    // next to the current one which then replaces it, so the file on disk always holds a
+    // complete table. As in HashTableLongLong the table is rebuilt at the same size if
+    // most of the used buckets are deleted cells
+    private void resizeTable() {
+        final long newCapacity = keyCount >= usedBuckets / 2 ? capacity * 2 : capacity;
+        final Path resizePath = path.resolveSibling(path.getFileName() + ".resize");
+
+        try {
+            HashTableMappedLongLong resized = new HashTableMappedLongLong(resizePath, newCapacity,
+                    loadFactor, probing, noEntryValue);
+
+            for (long i = 0; i < capacity; i++) {
+                long key = keyAt(i);
+                if (key != FREE_KEY && key != REMOVED_KEY) resized.insert(key, valueAt(i));
+            }
+            resized.hasFreeKey = hasFreeKey;
+            resized.hasRemovedKey = hasRemovedKey;
+            resized.freeKeyValue = freeKeyValue;
+            resized.removedKeyValue = removedKeyValue;
+            resized.keyCount = keyCount;
+            resized.writeCounts();
+            resized.flush();
+
+            Files.move(resizePath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            // Take over the mappings of the new file, the old ones are released once unreachable
+            header = resized.header;
+            chunks = resized.chunks;
+            capacity = resized.capacity;
+            threshold = resized.threshold;
+            usedBuckets = resized.usedBuckets;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to resize " + path, e);
+        }
+    }
+
+    // Writes all changes of the mapped records and the header through to the file
+    public void flush() {
+        header.force();
+        for (MappedByteBuffer chunk : chunks) chunk.force();
+    }
+
+    // Flushes the table. Java offers no way to unmap the file explicitly, the mappings
+    // are released once the table is no longer reachable
+    @Override
+    public void close() {
+        flush();
+    }
+
+    // Return a String representation of this hash-table.
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("{");
+        if (hasFreeKey) sb.append(FREE_KEY + " => " + freeKeyValue + ", ");
+        if (hasRemovedKey) sb.append(REMOVED_KEY + " => " + removedKeyValue + ", ");
+        for (long i = 0; i < capacity; i++) {
+            long key = keyAt(i);
+            if (key != FREE_KEY && key != REMOVED_KEY) sb.append(key + " => " + valueAt(i) + ", ");
+        }
+        sb.append("}");
+
+        return sb.toString();
+    }
+}
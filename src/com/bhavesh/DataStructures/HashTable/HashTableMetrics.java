@@ -0,0 +1,123 @@
+/*
+ * Metrics collected by a hash table while metrics are enabled on it
+ *
+ * Every get, hasKey, insert and remove records one length in a histogram: the number of
+ * slots it probed in an open addressing table, or the length of the chain of its bucket in
+ * a separate chaining table. Lengths of LENGTH_BUCKETS - 1 and more share the last bucket
+ * of the histogram, the exact maximum is kept separately. Resizes are counted and timed,
+ * including rehashes at the same capacity and shrinks.
+ *
+ * The load factor and the tombstone ratio describe the table as it is, so they are not
+ * recorded but filled in whenever the table hands out its metrics.
+ */
+
+package com.bhavesh.DataStructures.HashTable;
+
+public class HashTableMetrics {
+
+    // The number of buckets of the length histogram
+    public static final int LENGTH_BUCKETS = 32;
+
+    // What the lengths are, "probe" or "chain"
+    private final String lengthName;
+
+    private final long[] lengthHistogram = new long[LENGTH_BUCKETS];
+    private long operations, totalLength;
+    private int maxLength;
+
+    private long resizeCount, totalResizeNanos, maxResizeNanos;
+
+    // Filled in by the table when the metrics are read
+    private int size, capacity, tombstones;
+
+    HashTableMetrics(String lengthName) {
+        this.lengthName = lengthName;
+    }
+
+    void recordLength(int length) {
+        lengthHistogram[Math.min(length, LENGTH_BUCKETS - 1)]++;
+        operations++;
+        totalLength += length;
+        if (length > maxLength) maxLength = length;
+    }
+
+    void recordResize(long nanos) {
+        resizeCount++;
+        totalResizeNanos += nanos;
+        if (nanos > maxResizeNanos) maxResizeNanos = nanos;
+    }
+
+    void update(int size, int capacity, int tombstones) {
+        this.size = size;
+        this.capacity = capacity;
+        this.tombstones = tombstones;
+    }
+
+    // Clears the recorded lengths and resizes
+    public void reset() {
+        for (int i = 0; i < LENGTH_BUCKETS; i++) lengthHistogram[i] = 0;
+        operations = totalLength = 0;
+        maxLength = 0;
+        resizeCount = totalResizeNanos = maxResizeNanos = 0;
+    }
+
+    // Returns a copy of the histogram, index i holds the number of operations with length i
+    // and the last index those with length LENGTH_BUCKETS - 1 or more
+    public long[] getLengthHistogram() {
+        return lengthHistogram.clone();
+    }
+
+    // Returns the number of operations recorded
+    public long getOperations() {
+        return operations;
+    }
+
+    public double getAverageLength() {
+        return operations == 0 ? 0 : (double) totalLength / operations;
+    }
+
+    public int getMaxLength() {
+        return maxLength;
+    }
+
+    public long getResizeCount() {
+        return resizeCount;
+    }
+
+    public long getTotalResizeNanos() {
+        return totalResizeNanos;
+    }
+
+    public long getMaxResizeNanos() {
+        return maxResizeNanos;
+    }
+
+    // Returns the number of keys per slot (or per bucket) when the metrics were handed out
+    public double getLoadFactor() {
+        return capacity == 0 ? 0 : (double) size / capacity;
+    }
+
+    // Returns the fraction of slots holding a TOMBSTONE when the metrics were handed
+    // out, always 0 for tables which do not use tombstones
+    public double getTombstoneRatio() {
+        return capacity == 0 ? 0 : (double) tombstones / capacity;
+    }
+
+    // Returns a multi-line report of the metrics
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("load factor: %.3f, tombstone ratio: %.3f%n", getLoadFactor(), getTombstoneRatio()));
+        sb.append(String.format("operations: %d, average %s length: %.2f, max %s length: %d%n",
+                operations, lengthName, getAverageLength(), lengthName, maxLength));
+        sb.append(String.format("resizes: %d, total: %.3f ms, longest: %.3f ms%n",
+                resizeCount, totalResizeNanos / 1e6, maxResizeNanos / 1e6));
+
+        for (int i = 0; i < LENGTH_BUCKETS; i++) {
+            if (lengthHistogram[i] == 0) continue;
+            sb.append(String.format("%s length %s%d: %d%n", lengthName,
+                    i == LENGTH_BUCKETS - 1 ? ">=" : "", i, lengthHistogram[i]));
+        }
+        return sb.toString();
+    }
+}
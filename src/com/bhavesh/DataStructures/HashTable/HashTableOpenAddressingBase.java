@@ -1,12 +1,67 @@
 /*
  * Base class for hash tables with open addressing collision resolution techniques
  * such as linear probing, quadratic probing and double hashing
+ *
+ * Resizing normally rehashes every entry in a single pass. With incremental resizing
+ * enabled the old tables are kept alive after a resize instead, and every insert, get
+ * and remove migrates a bounded number of old buckets into the new tables. Until the
+ * migration completes, keys are looked up in both tables.
+ *
+ * Tables constructed in power of two mode keep their capacity at a power of two. Hash
+ * values are then spread with a Fibonacci (multiplicative) hash and indexes are found by
+ * bit masking instead of the modulo operation, which is cheaper on the hot path and
+ * copes much better with poorly distributed hashCode() implementations.
+ *
+ * The full hash code of every key is cached next to it. Probing compares the cached hash
+ * first and only calls equals() when the hashes match, and rehashing never has to call
+ * hashCode() again.
+ *
+ * Deleted keys leave TOMBSTONE markers which count towards the used buckets. When the
+ * used buckets reach the threshold but most of them are tombstones the table is rehashed
+ * at its current capacity instead of growing, and compact() does the same on demand. With
+ * a minimum load factor set the table also shrinks once removals leave it sparse.
+ *
+ * getAll() and putAll() work on batches of keys. They compute the hashes of a group of
+ * keys up front and then read the home buckets of the whole group in one pass, so the
+ * cache misses of different keys overlap instead of being paid one after the other.
+ *
+ * When the number of keys is known up front, capacityFor() and the withExpectedSize()
+ * factories of the subclasses pick a capacity which holds them without a single resize,
+ * ensureCapacity() does the same for an existing table, and build() fills a table from
+ * parallel key and value arrays after sizing it once.
+ *
+ * Besides keys() and values(), which copy the table into new lists, the table can be
+ * scanned without allocating through forEach(), a reusable Cursor and spliterators which
+ * split the slot range for parallel streams. All of them walk the backing arrays directly.
+ *
+ * With metrics enabled the table records the probe length of every get, hasKey, insert and
+ * remove and the duration of every resize, see HashTableMetrics. Disabled metrics cost a
+ * single null check per operation.
+ *
+ * writeSnapshot() saves the table to a compact binary file: the capacity and probing
+ * parameters followed by every slot as it is, with its cached hash and the key and value
+ * converted by a SnapshotCodec. loadSnapshot() reads such a file back through a FileChannel
+ * straight into the slots, so a warm start neither rehashes nor calls hashCode().
  */
 
 package com.bhavesh.DataStructures.HashTable;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 @SuppressWarnings("unchecked")
 public abstract class HashTableOpenAddressingBase<K, V> {
@@ -21,15 +76,71 @@ public abstract class HashTableOpenAddressingBase<K, V> {
     // To keep track of the number of unique keys currently inside the hash table
     protected int keyCount;
 
-    // These arrays store the key-value pairs
+    // The number of buckets of the current table marked with a TOMBSTONE
+    private int tombstoneCount;
+
+    // The table shrinks when the load drops below the minimum load factor (0 disables
+    // shrinking), but never below the capacity it was constructed with
+    private double minLoadFactor;
+    private final int initialCapacity;
+
+    // These arrays store the key-value pairs and the hash code of each key
     protected K[] keys;
     protected V[] values;
+    protected int[] hashes;
 
     // Special marker token used to indicate the deletion of a key-value pair
     protected final K TOMBSTONE = (K) (new Object());
 
+    // Whether the capacity is kept at a power of two so that indexes can be found by masking
+    private final boolean powerOfTwo;
+
+    // Whether resizes are spread over subsequent operations
+    private boolean incrementalResize;
+
+    // The tables being migrated during an incremental resize (null when no resize is in
+    // progress) and the index of the next old bucket which still has to be migrated
+    private K[] oldKeys;
+    private V[] oldValues;
+    private int[] oldHashes;
+    private int oldCapacity, migrationIndex;
+
     private static final int DEFAULT_CAPACITY = 7;
-    private static final double DEFAULT_LOAD_FACTOR = 0.65;
+    protected static final double DEFAULT_LOAD_FACTOR = 0.65;
+
+    // The largest capacity capacityFor() hands out, leaving room for rounding it up
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    // The number of old buckets migrated by every operation during an incremental resize
+    private static final int MIGRATION_STEP = 16;
+
+    // 2^32 divided by the golden ratio, used to spread hash values in power of two mode
+    private static final int FIBONACCI_MULTIPLIER = 0x9E3779B9;
+
+    // The number of keys whose home buckets are read together by the batch operations
+    private static final int BATCH_SIZE = 16;
+
+    // Scratch space of the batch operations, allocated on first use. During a batch a
+    // home index of SETTLED marks a key which needs no further work and NOT_AT_HOME a key
+    // which needs a regular lookup
+    private int[] batchHashes, batchIndexes;
+    private static final int SETTLED = -1, NOT_AT_HOME = -2;
+
+    // Only allocated while metrics are enabled
+    private HashTableMetrics metrics;
+
+    // Snapshot file format: a header holding these two values, the class name, the mode and
+    // the counters, followed by one record per slot, starting with one of the slot states
+    private static final long SNAPSHOT_MAGIC = 0x48544F4153534E50L;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final byte EMPTY_SLOT = 0, DELETED_SLOT = 1, FULL_SLOT = 2;
+
+    // Bytes in front of the class name (magic, version and name length) and after it
+    // (power of two flag, variant, capacity, load factor and the three counters)
+    private static final int SNAPSHOT_PREFIX_SIZE = Long.BYTES + Integer.BYTES + Integer.BYTES;
+    private static final int SNAPSHOT_TABLE_HEADER_SIZE = 1 + Integer.BYTES + Integer.BYTES + Double.BYTES
+            + 3 * Integer.BYTES;
+    private static final int SNAPSHOT_BUFFER_SIZE = 1 << 16;
 
     protected HashTableOpenAddressingBase() {
         this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
@@ -40,18 +151,26 @@ public abstract class HashTableOpenAddressingBase<K, V> {
     }
 
     protected HashTableOpenAddressingBase(int capacity, double loadFactor) {
+        this(capacity, loadFactor, false);
+    }
+
+    protected HashTableOpenAddressingBase(int capacity, double loadFactor, boolean powerOfTwo) {
         if (capacity <= 0) throw new IllegalArgumentException("Invalid capacity");
 
         if (loadFactor <= 0 || Double.isNaN(loadFactor) || Double.isInfinite(loadFactor))
             throw new IllegalArgumentException("Invalid load factor");
 
         this.loadFactor = loadFactor;
+        this.powerOfTwo = powerOfTwo;
         this.capacity = Math.max(DEFAULT_CAPACITY, capacity);
-        adjustCapacity();
+        if (powerOfTwo) this.capacity = nextPowerOfTwo(this.capacity);
+        else adjustCapacity();
         threshold = (int) (this.capacity * loadFactor);
+        initialCapacity = this.capacity;
 
         keys = (K[]) new Object[this.capacity];
         values = (V[]) new Object[this.capacity];
+        hashes = new int[this.capacity];
     }
 
 
@@ -71,12 +190,176 @@ public abstract class HashTableOpenAddressingBase<K, V> {
         capacity = (2 * capacity) + 1;
     }
 
+    // Grows the capacity for a resize. In power of two mode the capacity simply doubles,
+    // every probing scheme can reach all the buckets of a power of two sized table
+    private void growCapacity() {
+        if (powerOfTwo) {
+            capacity *= 2;
+        } else {
+            increaseCapacity();
+            adjustCapacity();
+        }
+    }
+
+    // Returns the smallest power of two greater than or equal to n
+    private static int nextPowerOfTwo(int n) {
+        int pow2 = Integer.highestOneBit(n);
+        return pow2 == n ? n : pow2 << 1;
+    }
+
+    // Returns the smallest capacity whose threshold at the given load factor is at least
+    // expectedSize, so that a table constructed with it holds expectedSize keys without
+    // resizing. The constructors only round a capacity up to what the probing scheme needs
+    // (a power of two, a prime), so the result can be passed to any of them
+    public static int capacityFor(int expectedSize, double loadFactor) {
+        if (expectedSize < 0) throw new IllegalArgumentException("Invalid expected size");
+
+        if (loadFactor <= 0 || Double.isNaN(loadFactor) || Double.isInfinite(loadFactor))
+            throw new IllegalArgumentException("Invalid load factor");
+
+        long capacity = (long) Math.ceil(expectedSize / loadFactor);
+        while ((long) (capacity * loadFactor) < expectedSize) capacity++;
+        if (capacity > MAX_CAPACITY) throw new IllegalArgumentException("Expected size is too large");
+        return (int) Math.max(1, capacity);
+    }
+
+    // Sets the capacity to hold expectedSize keys, rounded up as the probing scheme requires
+    private void sizeFor(int expectedSize) {
+        capacity = Math.max(DEFAULT_CAPACITY, capacityFor(expectedSize, loadFactor));
+        if (powerOfTwo) capacity = nextPowerOfTwo(capacity);
+        else adjustCapacity();
+    }
+
+    // Grows the table once so that it holds expectedSize keys in total without resizing
+    // again. Tombstones count towards the threshold, so a table that has enough capacity
+    // but too many tombstones is rehashed at its current capacity instead
+    public void ensureCapacity(int expectedSize) {
+        completeMigration();
+        if (usedBuckets + Math.max(0, expectedSize - keyCount) <= threshold) return;
+
+        final int oldCapacity = capacity;
+        sizeFor(expectedSize);
+        if (capacity < oldCapacity) capacity = oldCapacity;
+        rehashTable(false);
+    }
+
+    // Replaces the contents of the table with the key-value pairs of two parallel arrays,
+    // later pairs overwriting earlier ones with an equal key. The table is sized for all the
+    // keys first, so the keys are placed without checking the threshold or resizing
+    public void build(K[] buildKeys, V[] buildValues) {
+        if (buildKeys.length != buildValues.length)
+            throw new IllegalArgumentException("Keys and values differ in length");
+        for (K key : buildKeys) {
+            if (key == null) throw new IllegalArgumentException("Null key");
+        }
+
+        final int oldCapacity = capacity;
+        sizeFor(buildKeys.length);
+        if (capacity > oldCapacity) {
+            threshold = (int) (capacity * loadFactor);
+            keys = (K[]) new Object[capacity];
+            values = (V[]) new Object[capacity];
+            hashes = new int[capacity];
+            oldKeys = null;
+            oldValues = null;
+            oldHashes = null;
+            keyCount = usedBuckets = tombstoneCount = 0;
+            allocateSlotState(capacity);
+        } else {
+            capacity = oldCapacity;
+            clear();
+        }
+
+        for (int i = 0; i < buildKeys.length; i++)
+            insertWithoutResize(buildKeys[i], buildValues[i], buildKeys[i].hashCode());
+    }
+
+    // Returns true if this table keeps a power of two capacity and indexes by masking
+    public boolean isPowerOfTwo() {
+        return powerOfTwo;
+    }
+
+    // Called whenever fresh key/value tables have been allocated during a resize and
+    // before the old entries are re-inserted. Subclasses that keep additional per-slot
+    // state alongside the keys should allocate it here for the new capacity
+    protected void allocateSlotState(int capacity) {}
+
     public void clear() {
         for (int i = 0; i < capacity; i++) {
             keys[i] = null;
             values[i] = null;
         }
-        keyCount = usedBuckets = 0;
+        oldKeys = null;
+        oldValues = null;
+        oldHashes = null;
+        keyCount = usedBuckets = tombstoneCount = 0;
+    }
+
+    // Sets the load factor below which removals shrink the table, 0 turns shrinking off.
+    // It has to stay well below the load factor so that a shrunk table, which is rebuilt
+    // at about half the load factor, does not immediately shrink again
+    public void setMinLoadFactor(double minLoadFactor) {
+        if (minLoadFactor < 0 || !(minLoadFactor < loadFactor / 4))
+            throw new IllegalArgumentException("Invalid min load factor");
+        this.minLoadFactor = minLoadFactor;
+    }
+
+    public double getMinLoadFactor() {
+        return minLoadFactor;
+    }
+
+    // Returns the number of buckets marked with a TOMBSTONE
+    public int getTombstoneCount() {
+        return tombstoneCount;
+    }
+
+    // Returns the fraction of the buckets which are marked with a TOMBSTONE
+    public double tombstoneRatio() {
+        return (double) tombstoneCount / capacity;
+    }
+
+    // Rehashes the table at its current capacity, which removes every TOMBSTONE.
+    // Any incremental resize in progress is completed first
+    public void compact() {
+        completeMigration();
+        rehashTable(false);
+    }
+
+    // Enables or disables incremental resizing. Disabling it while a
+    // resize is in progress finishes the migration straight away
+    public void setIncrementalResize(boolean incrementalResize) {
+        if (!incrementalResize) completeMigration();
+        this.incrementalResize = incrementalResize;
+    }
+
+    public boolean isIncrementalResize() {
+        return incrementalResize;
+    }
+
+    // Enables or disables the recording of metrics. Enabling them starts from empty metrics
+    public void setMetricsEnabled(boolean enabled) {
+        if (!enabled) metrics = null;
+        else if (metrics == null) metrics = new HashTableMetrics("probe");
+    }
+
+    public boolean isMetricsEnabled() {
+        return metrics != null;
+    }
+
+    // Returns the metrics recorded so far, or null if metrics are disabled
+    public HashTableMetrics getMetrics() {
+        if (metrics != null) metrics.update(keyCount, capacity, tombstoneCount);
+        return metrics;
+    }
+
+    // Records the number of slots probed by an operation, if metrics are enabled
+    protected final void recordProbeLength(int length) {
+        if (metrics != null) metrics.recordLength(length);
+    }
+
+    // Returns true while an incremental resize is still migrating old buckets
+    public boolean isResizing() {
+        return oldKeys != null;
     }
 
     // Returns the number of keys inside the hash table
@@ -114,6 +397,10 @@ public abstract class HashTableOpenAddressingBase<K, V> {
             if (keys[i] != null && keys[i] != TOMBSTONE)
                 hashTableKeys.add(keys[i]);
         }
+        for (int i = migrationIndex; oldKeys != null && i < oldCapacity; i++) {
+            if (oldKeys[i] != null && oldKeys[i] != TOMBSTONE)
+                hashTableKeys.add(oldKeys[i]);
+        }
         return hashTableKeys;
     }
 
@@ -124,14 +411,349 @@ public abstract class HashTableOpenAddressingBase<K, V> {
             if (keys[i] != null && keys[i] != TOMBSTONE)
                 hashTableValues.add(values[i]);
         }
+        for (int i = migrationIndex; oldKeys != null && i < oldCapacity; i++) {
+            if (oldKeys[i] != null && oldKeys[i] != TOMBSTONE)
+                hashTableValues.add(oldValues[i]);
+        }
         return hashTableValues;
     }
 
-    // Double the size of the hash table
+    // Calls the action for every key-value pair. An incremental resize in progress is
+    // completed first, which keeps the scan O(n) and means only one table has to be walked
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        completeMigration();
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] != null && keys[i] != TOMBSTONE) action.accept(keys[i], values[i]);
+        }
+    }
+
+    // Returns a cursor positioned before the first key-value pair, see Cursor
+    public Cursor cursor() {
+        completeMigration();
+        return new Cursor();
+    }
+
+    // A cursor over the key-value pairs of the table which can be reset and reused, so
+    // repeated scans allocate nothing at all. The table must not be modified during a
+    // scan other than by replacing values through setValue()
+    public final class Cursor {
+        private int slot = -1;
+
+        private Cursor() {}
+
+        // Moves to the next key-value pair, returns false once every pair has been visited
+        public boolean advance() {
+            while (slot < capacity - 1) {
+                K key = keys[++slot];
+                if (key != null && key != TOMBSTONE) return true;
+            }
+            slot = capacity;
+            return false;
+        }
+
+        public K key() {
+            return keys[slot];
+        }
+
+        public V value() {
+            return values[slot];
+        }
+
+        public void setValue(V value) {
+            values[slot] = value;
+        }
+
+        // Moves the cursor back before the first key-value pair
+        public void reset() {
+            completeMigration();
+            slot = -1;
+        }
+    }
+
+    // Spliterators over the keys, values and key-value pairs. Like forEach() they complete
+    // any incremental resize in progress and the table must not be modified while in use
+    public Spliterator<K> keySpliterator() {
+        return spliterator((key, value) -> key, Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    public Spliterator<V> valueSpliterator() {
+        return spliterator((key, value) -> value, 0);
+    }
+
+    public Spliterator<Map.Entry<K, V>> entrySpliterator() {
+        return spliterator(AbstractMap.SimpleImmutableEntry::new, Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    private <T> Spliterator<T> spliterator(BiFunction<K, V, T> element, int characteristics) {
+        completeMigration();
+        return new SlotSpliterator<>(keys, values, 0, capacity, keyCount, element, characteristics);
+    }
+
+    // Splits the range of slots [index, fence) in halves
+    private final class SlotSpliterator<T> implements Spliterator<T> {
+        private final K[] keyTable;
+        private final V[] valueTable;
+        private final BiFunction<K, V, T> element;
+        private final int characteristics;
+        private int index, fence;
+        private long estimate;
+
+        SlotSpliterator(K[] keyTable, V[] valueTable, int index, int fence, long estimate,
+                        BiFunction<K, V, T> element, int characteristics) {
+            this.keyTable = keyTable;
+            this.valueTable = valueTable;
+            this.index = index;
+            this.fence = fence;
+            this.estimate = estimate;
+            this.element = element;
+            this.characteristics = characteristics;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            while (index < fence) {
+                int i = index++;
+                K key = keyTable[i];
+                if (key != null && key != TOMBSTONE) {
+                    action.accept(element.apply(key, valueTable[i]));
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            for (; index < fence; index++) {
+                K key = keyTable[index];
+                if (key != null && key != TOMBSTONE) action.accept(element.apply(key, valueTable[index]));
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int lo = index, mid = (lo + fence) >>> 1;
+            if (lo >= mid) return null;
+            index = mid;
+            estimate >>>= 1;
+            return new SlotSpliterator<>(keyTable, valueTable, lo, mid, estimate, element, characteristics);
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+    }
+
+    // Returns a number identifying subclass specific modes which change where keys are
+    // placed, a snapshot can only be loaded into a table of the same class and variant
+    protected int snapshotVariant() {
+        return 0;
+    }
+
+    // Called after a snapshot has been loaded into the slots. Subclasses that keep additional
+    // per-slot state, allocated by allocateSlotState(), should rebuild it here
+    protected void restoreSlotState() {}
+
+    // Writes a snapshot of the table to a file, replacing the file if it exists. Every slot is
+    // written as it is, with its cached hash, so loadSnapshot() can restore the table without
+    // rehashing. Any incremental resize in progress is completed first
+    public void writeSnapshot(Path path, SnapshotCodec<? super K> keyCodec,
+                              SnapshotCodec<? super V> valueCodec) throws IOException {
+        completeMigration();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+
+            byte[] className = getClass().getName().getBytes(StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.allocateDirect(Math.max(SNAPSHOT_BUFFER_SIZE,
+                    SNAPSHOT_PREFIX_SIZE + className.length + SNAPSHOT_TABLE_HEADER_SIZE));
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            buffer.putLong(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION);
+            buffer.putInt(className.length).put(className);
+            buffer.put((byte) (powerOfTwo ? 1 : 0)).putInt(snapshotVariant());
+            buffer.putInt(capacity).putDouble(loadFactor);
+            buffer.putInt(keyCount).putInt(usedBuckets).putInt(tombstoneCount);
+
+            for (int i = 0; i < capacity; i++) {
+                if (keys[i] == null || keys[i] == TOMBSTONE) {
+                    buffer = ensureRoom(channel, buffer, 1);
+                    buffer.put(keys[i] == null ? EMPTY_SLOT : DELETED_SLOT);
+                    continue;
+                }
+
+                // A null value is written with a size of -1
+                int keySize = keyCodec.size(keys[i]);
+                int valueSize = values[i] == null ? -1 : valueCodec.size(values[i]);
+                buffer = ensureRoom(channel, buffer, 13 + keySize + Math.max(0, valueSize));
+
+                buffer.put(FULL_SLOT).putInt(hashes[i]).putInt(keySize);
+                keyCodec.write(keys[i], buffer);
+                buffer.putInt(valueSize);
+                if (valueSize >= 0) valueCodec.write(values[i], buffer);
+            }
+
+            buffer.flip();
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    // Replaces the contents of the table with a snapshot written by writeSnapshot() on a table
+    // of the same class and mode. The capacity, load factor and slots are restored exactly,
+    // tombstones included. The table is only modified once the whole file has been read
+    public void loadSnapshot(Path path, SnapshotCodec<? extends K> keyCodec,
+                             SnapshotCodec<? extends V> valueCodec) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER_SIZE);
+            buffer.order(ByteOrder.LITTLE_ENDIAN).flip();
+
+            buffer = fill(channel, buffer, SNAPSHOT_PREFIX_SIZE);
+            if (buffer.getLong() != SNAPSHOT_MAGIC || buffer.getInt() != SNAPSHOT_VERSION)
+                throw new IOException("Not a hash table snapshot: " + path);
+
+            int classNameLength = buffer.getInt();
+            if (classNameLength < 0) throw new IOException("Corrupt hash table snapshot: " + path);
+            buffer = fill(channel, buffer, classNameLength + SNAPSHOT_TABLE_HEADER_SIZE);
+            byte[] className = new byte[classNameLength];
+            buffer.get(className);
+            boolean snapshotPowerOfTwo = buffer.get() == 1;
+            int variant = buffer.getInt();
+            if (!getClass().getName().equals(new String(className, StandardCharsets.UTF_8))
+                    || snapshotPowerOfTwo != powerOfTwo || variant != snapshotVariant())
+                throw new IllegalArgumentException("Snapshot does not match the table");
+
+            int newCapacity = buffer.getInt();
+            double newLoadFactor = buffer.getDouble();
+            int newKeyCount = buffer.getInt(), newUsedBuckets = buffer.getInt(), newTombstoneCount = buffer.getInt();
+            if (newCapacity <= 0 || !(newLoadFactor > 0)) throw new IOException("Corrupt hash table snapshot: " + path);
+
+            K[] newKeys = (K[]) new Object[newCapacity];
+            V[] newValues = (V[]) new Object[newCapacity];
+            int[] newHashes = new int[newCapacity];
+
+            for (int i = 0; i < newCapacity; i++) {
+                buffer = fill(channel, buffer, 1);
+                byte state = buffer.get();
+                if (state == EMPTY_SLOT) continue;
+                if (state == DELETED_SLOT) {
+                    newKeys[i] = TOMBSTONE;
+                    continue;
+                }
+                if (state != FULL_SLOT) throw new IOException("Corrupt hash table snapshot: " + path);
+
+                buffer = fill(channel, buffer, 8);
+                newHashes[i] = buffer.getInt();
+                int keySize = buffer.getInt();
+                buffer = fill(channel, buffer, keySize + 4);
+                newKeys[i] = keyCodec.read(buffer, keySize);
+
+                int valueSize = buffer.getInt();
+                if (valueSize >= 0) {
+                    buffer = fill(channel, buffer, valueSize);
+                    newValues[i] = valueCodec.read(buffer, valueSize);
+                }
+            }
+
+            oldKeys = null;
+            oldValues = null;
+            oldHashes = null;
+            capacity = newCapacity;
+            loadFactor = newLoadFactor;
+            threshold = (int) (capacity * loadFactor);
+            if (!(minLoadFactor < loadFactor / 4)) minLoadFactor = 0;
+
+            keys = newKeys;
+            values = newValues;
+            hashes = newHashes;
+            keyCount = newKeyCount;
+            usedBuckets = newUsedBuckets;
+            tombstoneCount = newTombstoneCount;
+
+            allocateSlotState(capacity);
+            restoreSlotState();
+        }
+    }
+
+    // Writes out the buffer if it cannot take another n bytes. Returns a larger buffer
+    // if a record does not fit into an empty one
+    private static ByteBuffer ensureRoom(FileChannel channel, ByteBuffer buffer, int n) throws IOException {
+        if (buffer.remaining() >= n) return buffer;
+
+        buffer.flip();
+        while (buffer.hasRemaining()) channel.write(buffer);
+        buffer.clear();
+
+        if (buffer.capacity() >= n) return buffer;
+        return ByteBuffer.allocateDirect(n).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    // Makes sure that at least n bytes can be read from the buffer, reading more of the file
+    // if needed. Returns a larger buffer if a record does not fit into the current one
+    private static ByteBuffer fill(FileChannel channel, ByteBuffer buffer, int n) throws IOException {
+        if (buffer.remaining() >= n) return buffer;
+        if (n < 0) throw new IOException("Corrupt hash table snapshot");
+
+        if (buffer.capacity() >= n) {
+            buffer.compact();
+        } else {
+            ByteBuffer larger = ByteBuffer.allocateDirect(n).order(ByteOrder.LITTLE_ENDIAN);
+            larger.put(buffer);
+            buffer = larger;
+        }
+
+        while (buffer.position() < n) {
+            if (channel.read(buffer) == -1) throw new EOFException("Truncated hash table snapshot");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    // Double the size of the hash table. If at least half of the used buckets are
+    // tombstones the live keys fit comfortably, so the table is rehashed at the same
+    // capacity instead to reclaim the deleted buckets
     protected void resizeTable() {
-        increaseCapacity();
-        adjustCapacity();
+        completeMigration();
+        if (keyCount >= usedBuckets / 2) growCapacity();
+        rehashTable(incrementalResize);
+    }
+
+    // Shrinks the table after a removal if the load has dropped below the minimum load
+    // factor. The new capacity is picked so that the table is about half full
+    protected final void shrinkIfSparse() {
+        if (keyCount >= capacity * minLoadFactor || capacity <= initialCapacity) return;
+
+        completeMigration();
+        final int oldCapacity = capacity;
+        capacity = Math.max(initialCapacity, (int) (2 * keyCount / loadFactor));
+        if (powerOfTwo) capacity = nextPowerOfTwo(capacity);
+        else adjustCapacity();
+
+        if (capacity < oldCapacity) rehashTable(incrementalResize);
+        else capacity = oldCapacity;
+    }
 
+    // Rehashes every key into fresh tables of the current capacity, which may differ
+    // from the capacity of the tables the keys are currently stored in
+    private void rehashTable(boolean incremental) {
+        // The re-inserted keys are not operations of their own, so they are not recorded
+        final HashTableMetrics resizeMetrics = metrics;
+        final long start = resizeMetrics == null ? 0 : System.nanoTime();
+        metrics = null;
+
+        if (incremental) startIncrementalResize();
+        else rehashAll();
+
+        metrics = resizeMetrics;
+        if (resizeMetrics != null) resizeMetrics.recordResize(System.nanoTime() - start);
+    }
+
+    private void rehashAll() {
         threshold = (int) (capacity * loadFactor);
 
         K[] oldKeyTable = (K[]) new Object[capacity];
@@ -147,25 +769,126 @@ public abstract class HashTableOpenAddressingBase<K, V> {
         values = oldValueTable;
         oldValueTable = valueTableTmp;
 
+        int[] oldHashTable = hashes;
+        hashes = new int[capacity];
+
         // Reset the key count and buckets used since we are about to
         // re-insert all the keys into the hash table
-        keyCount = usedBuckets = 0;
+        keyCount = usedBuckets = tombstoneCount = 0;
+        allocateSlotState(capacity);
 
         for (int i = 0; i < oldKeyTable.length; i++) {
             if (oldKeyTable[i] != null && oldKeyTable[i] != TOMBSTONE)
-                insert(oldKeyTable[i], oldValueTable[i]);
+                insert(oldKeyTable[i], oldValueTable[i], oldHashTable[i]);
             oldKeyTable[i] = null;
             oldValueTable[i] = null;
         }
     }
 
 
+    // Allocates tables of the new capacity but leaves the entries in the old tables. Callers
+    // complete any resize in progress first so that at most two tables are ever alive
+    private void startIncrementalResize() {
+        oldKeys = keys;
+        oldValues = values;
+        oldHashes = hashes;
+        oldCapacity = keys.length;
+        migrationIndex = 0;
+
+        threshold = (int) (capacity * loadFactor);
+
+        keys = (K[]) new Object[capacity];
+        values = (V[]) new Object[capacity];
+        hashes = new int[capacity];
+
+        // The key count still includes the keys in the old table
+        usedBuckets = tombstoneCount = 0;
+        allocateSlotState(capacity);
+    }
+
+    // Moves the next MIGRATION_STEP buckets of the old table into the new table
+    private void migrateBuckets() {
+        final int end = Math.min(oldCapacity, migrationIndex + MIGRATION_STEP);
+        for (; migrationIndex < end; migrationIndex++) {
+            K key = oldKeys[migrationIndex];
+            if (key != null && key != TOMBSTONE) {
+                moveToTable(key, oldValues[migrationIndex], oldHashes[migrationIndex]);
+
+                // Leave a TOMBSTONE so that probe chains running through this
+                // bucket still reach the keys which have not been migrated yet
+                oldKeys[migrationIndex] = TOMBSTONE;
+                oldValues[migrationIndex] = null;
+            }
+        }
+        if (migrationIndex == oldCapacity) {
+            oldKeys = null;
+            oldValues = null;
+            oldHashes = null;
+        }
+    }
+
+    // Migrates all remaining buckets of a resize in progress
+    private void completeMigration() {
+        while (oldKeys != null) migrateBuckets();
+    }
+
+    // Places a key which is known not to be in the current table in the first free slot
+    private void moveToTable(K key, V value, int hash) {
+        setupProbing(key);
+        final int offset = hashIndex(hash);
+
+        for (int i = offset, x = 1; ; i = normalizeIndex(offset + probe(x++))) {
+            if (keys[i] == null || keys[i] == TOMBSTONE) {
+                if (keys[i] == null) usedBuckets++;
+                else tombstoneCount--;
+                keys[i] = key;
+                values[i] = value;
+                hashes[i] = hash;
+                return;
+            }
+        }
+    }
+
+    // During an incremental resize, migrates the next few buckets and then looks for
+    // the key in the old table. Returns the index of the key in the old table, or -1 if
+    // no resize is in progress or the key is not there
+    private int seekOldTable(K key, int hash) {
+        if (oldKeys == null) return -1;
+        migrateBuckets();
+        if (oldKeys == null) return -1;
+
+        // The probing methods work against the current capacity, so
+        // switch to the old capacity while probing the old table
+        final int newCapacity = capacity;
+        capacity = oldCapacity;
+        try {
+            setupProbing(key);
+            final int offset = hashIndex(hash);
+
+            for (int i = offset, x = 1; ; i = normalizeIndex(offset + probe(x++))) {
+                if (oldKeys[i] == null) return -1;
+                if (oldHashes[i] == hash && oldKeys[i] != TOMBSTONE && oldKeys[i].equals(key)) return i;
+            }
+        } finally {
+            capacity = newCapacity;
+        }
+    }
+
     // Converts hash value to an index. Essentially, this strips the
     // negative sign and places the hash value in the domain [0, capacity)
     protected final int normalizeIndex(int keyHash) {
+        if (powerOfTwo) return keyHash & (capacity - 1);
         return (keyHash & 0x7FFFFFFF) % capacity;
     }
 
+    // Converts a key's hash code to its home index. In power of two mode the hash is
+    // multiplied by the Fibonacci constant and the top bits are used as the index, so
+    // that all bits of the hash code take part in choosing the bucket
+    protected final int hashIndex(int keyHash) {
+        if (powerOfTwo) return (keyHash * FIBONACCI_MULTIPLIER) >>> (Integer.numberOfLeadingZeros(capacity) + 1);
+        return normalizeIndex(keyHash);
+    }
+
     protected static final int gcd(int a, int b) {
         if (b == 0) return a;
         return gcd(b, a % b);
@@ -175,12 +898,41 @@ public abstract class HashTableOpenAddressingBase<K, V> {
     // exists inside the hash table then the value is updated
     public V insert(K key, V value) {
         if (key == null) throw new IllegalArgumentException("Null key");
+        return insert(key, value, key.hashCode());
+    }
+
+    // Place a key-value pair whose hash code is already known in the hash table. This is
+    // also used to re-insert the keys when resizing, which is why subclasses overriding
+    // how keys are inserted should override this method
+    protected V insert(K key, V value, int hash) {
         if (usedBuckets >= threshold) resizeTable();
 
+        // A key which has not been migrated yet is moved over to the new table
+        int oldIndex = seekOldTable(key, hash);
+        if (oldIndex != -1) {
+            V oldValue = oldValues[oldIndex];
+            oldKeys[oldIndex] = TOMBSTONE;
+            oldValues[oldIndex] = null;
+            keyCount--;
+            insertIntoTable(key, value, hash);
+            return oldValue;
+        }
+
+        return insertIntoTable(key, value, hash);
+    }
+
+    // Places a key-value pair in a table which is known to have room for it and
+    // has no resize in progress. Subclasses overriding insert() override this too
+    protected V insertWithoutResize(K key, V value, int hash) {
+        return insertIntoTable(key, value, hash);
+    }
+
+    // Inserts or updates a key-value pair in the current table
+    private V insertIntoTable(K key, V value, int hash) {
         setupProbing(key);
-        final int offset = normalizeIndex(key.hashCode());
+        final int offset = hashIndex(hash);
 
-        for (int i = offset, j = -1, x = 1; ; normalizeIndex(offset + probe(x++))) {
+        for (int i = offset, j = -1, x = 1; ; i = normalizeIndex(offset + probe(x++))) {
 
             // The current slot was previously deleted
             if (keys[i] == TOMBSTONE) {
@@ -192,7 +944,8 @@ public abstract class HashTableOpenAddressingBase<K, V> {
 
                 // The key we are trying to insert already exists in the hash table,
                 // so update its value with the most recent value
-                if (keys[i].equals(key)) {
+                if (hashes[i] == hash && keys[i].equals(key)) {
+                    recordProbeLength(x);
 
                     V oldValue = values[i];
                     if (j == -1) {
@@ -203,6 +956,7 @@ public abstract class HashTableOpenAddressingBase<K, V> {
                         values[i] = null;
                         keys[j] = key;
                         values[j] = value;
+                        hashes[j] = hash;
                     }
                     return oldValue;
                 }
@@ -210,6 +964,7 @@ public abstract class HashTableOpenAddressingBase<K, V> {
 
             // Current cell is null so an insertion/update can take place
             else {
+                recordProbeLength(x);
 
                 // No previously encountered deleted buckets
                 if (j == -1) {
@@ -217,6 +972,7 @@ public abstract class HashTableOpenAddressingBase<K, V> {
                     keyCount++;
                     keys[i] = key;
                     values[i] = value;
+                    hashes[i] = hash;
                 }
 
                 // Previously seen deleted bucket. Instead of inserting
@@ -224,8 +980,10 @@ public abstract class HashTableOpenAddressingBase<K, V> {
                 // insert it where the deleted token was found
                 else {
                     keyCount++;
+                    tombstoneCount--;
                     keys[j] = key;
                     values[j] = value;
+                    hashes[j] = hash;
                 }
 
                 return null;
@@ -237,8 +995,11 @@ public abstract class HashTableOpenAddressingBase<K, V> {
     public boolean hasKey(K key) {
         if (key == null) throw new IllegalArgumentException("Null key");
 
+        final int hash = key.hashCode();
+        if (seekOldTable(key, hash) != -1) return true;
+
         setupProbing(key);
-        final int offset = normalizeIndex(key.hashCode());
+        final int offset = hashIndex(hash);
 
         // Start at the original hash value and probe until we find a spot where our key
         // is or hit a null element in which case our element does not exists
@@ -253,7 +1014,8 @@ public abstract class HashTableOpenAddressingBase<K, V> {
             // We hit a non-null key, perhaps it's the one we are looking for
             else if (keys[i] != null) {
 
-                if (keys[i].equals(key)) {
+                if (hashes[i] == hash && keys[i].equals(key)) {
+                    recordProbeLength(x);
 
                     // If j != -1 this means we previously encountered a deleted cell.
                     // We can perform an optimization by swapping the entries in cells
@@ -262,6 +1024,7 @@ public abstract class HashTableOpenAddressingBase<K, V> {
                     if (j != -1) {
                         keys[j] = keys[i];
                         values[j] = values[i];
+                        hashes[j] = hash;
                         keys[i] = TOMBSTONE;
                         values[i] = null;
                     }
@@ -270,8 +1033,10 @@ public abstract class HashTableOpenAddressingBase<K, V> {
             }
 
             // Key was not found in the hash table
-            else
+            else {
+                recordProbeLength(x);
                 return false;
+            }
         }
     }
 
@@ -279,8 +1044,12 @@ public abstract class HashTableOpenAddressingBase<K, V> {
     public V get(K key) {
         if (key == null) throw new IllegalArgumentException("Null key");
 
+        final int hash = key.hashCode();
+        int oldIndex = seekOldTable(key, hash);
+        if (oldIndex != -1) return oldValues[oldIndex];
+
         setupProbing(key);
-        final int offset = normalizeIndex(key.hashCode());
+        final int offset = hashIndex(hash);
 
         // Start at the original hash value and probe until we find a spot where our key
         // is or we hit a null element in which case our element does not exist.
@@ -295,7 +1064,8 @@ public abstract class HashTableOpenAddressingBase<K, V> {
             // We hit a non-null key, perhaps it's the one we are looking for
             else if (keys[i] != null) {
 
-                if (keys[i].equals(key)) {
+                if (hashes[i] == hash && keys[i].equals(key)) {
+                    recordProbeLength(x);
 
                     // If j != -1 this means we previously encountered a deleted cell.
                     // We can perform an optimization by swapping the entries in cells
@@ -304,6 +1074,7 @@ public abstract class HashTableOpenAddressingBase<K, V> {
                     if (j != -1) {
                         keys[j] = keys[i];
                         values[j] = values[i];
+                        hashes[j] = hash;
                         keys[i] = TOMBSTONE;
                         values[i] = null;
                         return values[j];
@@ -314,8 +1085,10 @@ public abstract class HashTableOpenAddressingBase<K, V> {
             }
 
             // Element was not found in the hash table
-            else
+            else {
+                recordProbeLength(x);
                 return null;
+            }
         }
     }
 
@@ -324,8 +1097,19 @@ public abstract class HashTableOpenAddressingBase<K, V> {
     public V remove(K key) {
         if (key == null) throw new IllegalArgumentException("Null key");
 
+        final int hash = key.hashCode();
+        int oldIndex = seekOldTable(key, hash);
+        if (oldIndex != -1) {
+            keyCount--;
+            V oldValue = oldValues[oldIndex];
+            oldKeys[oldIndex] = TOMBSTONE;
+            oldValues[oldIndex] = null;
+            shrinkIfSparse();
+            return oldValue;
+        }
+
         setupProbing(key);
-        final int offset = normalizeIndex(key.hashCode());
+        final int offset = hashIndex(hash);
 
         // Starting at the original hash probe until we find a spot where our key is
         // or we hit a null element in which case our element does not exist
@@ -335,19 +1119,113 @@ public abstract class HashTableOpenAddressingBase<K, V> {
             if (keys[i] == TOMBSTONE) continue;
 
             // Key was not found in the hash table
-            if (keys[i] == null) return null;
+            if (keys[i] == null) {
+                recordProbeLength(x);
+                return null;
+            }
 
             // The key we want to remove is present in the hash table
-            if (keys[i].equals(key)) {
+            if (hashes[i] == hash && keys[i].equals(key)) {
+                recordProbeLength(x);
                 keyCount--;
+                tombstoneCount++;
                 V oldValue = values[i];
                 keys[i] = TOMBSTONE;
                 values[i] = null;
+                shrinkIfSparse();
                 return oldValue;
             }
         }
     }
 
+    // Looks up every key of the batch and stores its value (null if the key does not exist)
+    // at the same index of results. Keys which are not settled by their home bucket fall
+    // back to a regular lookup, so the results are exactly those of calling get() in order
+    public void getAll(K[] batchKeys, V[] results) {
+        if (results.length < batchKeys.length) throw new IllegalArgumentException("Results array is too small");
+
+        for (int start = 0; start < batchKeys.length; start += BATCH_SIZE) {
+            final int n = Math.min(BATCH_SIZE, batchKeys.length - start);
+            computeBatchHashes(batchKeys, start, n);
+
+            // Keys may still sit in the old table during an incremental resize
+            if (oldKeys != null) {
+                for (int j = 0; j < n; j++) results[start + j] = get(batchKeys[start + j]);
+                continue;
+            }
+
+            // The reads of different home buckets do not depend on each other, so the CPU
+            // can have all of their cache misses in flight at once. Only the cached hashes
+            // are compared here, the key objects are dereferenced in a second pass so that
+            // those cache misses overlap as well
+            for (int j = 0; j < n; j++) {
+                final int i = batchIndexes[j];
+                final K key = keys[i];
+                if (key == null) {
+                    results[start + j] = null;
+                    batchIndexes[j] = SETTLED;
+                } else if (hashes[i] != batchHashes[j] || key == TOMBSTONE) {
+                    batchIndexes[j] = NOT_AT_HOME;
+                }
+            }
+
+            for (int j = 0; j < n; j++) {
+                final int i = batchIndexes[j];
+                if (i == SETTLED) continue;
+                if (i != NOT_AT_HOME && keys[i].equals(batchKeys[start + j])) results[start + j] = values[i];
+                else results[start + j] = get(batchKeys[start + j]);
+            }
+        }
+    }
+
+    // Places every key-value pair of the batch in the hash table, in order. Keys already
+    // stored in their home bucket are updated in a first pass over the group, the others
+    // are inserted with their precomputed hash codes
+    public void putAll(K[] batchKeys, V[] batchValues) {
+        if (batchKeys.length != batchValues.length)
+            throw new IllegalArgumentException("Keys and values differ in length");
+
+        for (int start = 0; start < batchKeys.length; start += BATCH_SIZE) {
+            final int n = Math.min(BATCH_SIZE, batchKeys.length - start);
+            computeBatchHashes(batchKeys, start, n);
+
+            // Updating values never moves a key, so the home indexes of the group stay
+            // valid for the whole pass. A key occurring twice in the group has the same
+            // home bucket both times, so its updates are still applied in order
+            if (oldKeys == null) {
+                for (int j = 0; j < n; j++) {
+                    final int i = batchIndexes[j];
+                    final K key = keys[i];
+                    if (key != null && hashes[i] == batchHashes[j] && key != TOMBSTONE && key.equals(batchKeys[start + j])) {
+                        values[i] = batchValues[start + j];
+                        batchIndexes[j] = SETTLED;
+                    }
+                }
+            }
+
+            // Inserting may start an incremental resize, which only means
+            // that the remaining keys are found through the old table
+            for (int j = 0; j < n; j++) {
+                if (batchIndexes[j] != SETTLED)
+                    insert(batchKeys[start + j], batchValues[start + j], batchHashes[j]);
+            }
+        }
+    }
+
+    // Computes the hash codes and home indexes of the n keys of a batch starting at start
+    private void computeBatchHashes(K[] batchKeys, int start, int n) {
+        if (batchHashes == null) {
+            batchHashes = new int[BATCH_SIZE];
+            batchIndexes = new int[BATCH_SIZE];
+        }
+        for (int j = 0; j < n; j++) {
+            K key = batchKeys[start + j];
+            if (key == null) throw new IllegalArgumentException("Null key");
+            batchHashes[j] = key.hashCode();
+            batchIndexes[j] = hashIndex(batchHashes[j]);
+        }
+    }
+
     // Return a String representation of this hash-table.
     @Override
     public String toString() {
@@ -356,6 +1234,8 @@ public abstract class HashTableOpenAddressingBase<K, V> {
         sb.append("{");
         for (int i = 0; i < capacity; i++)
             if (keys[i] != null && keys[i] != TOMBSTONE) sb.append(keys[i] + " => " + values[i] + ", ");
+        for (int i = migrationIndex; oldKeys != null && i < oldCapacity; i++)
+            if (oldKeys[i] != null && oldKeys[i] != TOMBSTONE) sb.append(oldKeys[i] + " => " + oldValues[i] + ", ");
         sb.append("}");
 
         return sb.toString();
@@ -24,6 +24,21 @@ public class HashTableQuadraticProbing<K, V> extends HashTableOpenAddressingBase
         super(capacity, loadFactor);
     }
 
+    // The capacity is always a power of two, in power of two mode the
+    // table additionally spreads the hash values and indexes by masking
+    public HashTableQuadraticProbing(int capacity, double loadFactor, boolean powerOfTwo) {
+        super(capacity, loadFactor, powerOfTwo);
+    }
+
+    // Creates a table which holds expectedSize keys without resizing
+    public static <K, V> HashTableQuadraticProbing<K, V> withExpectedSize(int expectedSize) {
+        return withExpectedSize(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    public static <K, V> HashTableQuadraticProbing<K, V> withExpectedSize(int expectedSize, double loadFactor) {
+        return new HashTableQuadraticProbing<>(capacityFor(expectedSize, loadFactor), loadFactor);
+    }
+
     // Given a number this method finds the next power of two greater that this value
     private static int nextPowerOfTwo(int n) {
         return Integer.highestOneBit(n) << 1;
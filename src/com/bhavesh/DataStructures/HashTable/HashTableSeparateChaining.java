@@ -1,36 +1,30 @@
 /*
  * An implementation of a hash-table using separate chaining with a linked list
+ *
+ * A bucket whose chain grows past TREEIFY_THRESHOLD entries is converted into a balanced
+ * tree (see TreeBucket), so that a batch of colliding keys cannot degrade lookups to O(n).
+ * Once a tree shrinks to UNTREEIFY_THRESHOLD entries it is converted back to a list.
+ *
+ * Besides keys() and values(), which copy the table into new lists, the table can be
+ * scanned without allocating per entry through forEach(), a reusable Cursor and
+ * spliterators which split the bucket range for parallel streams.
+ *
+ * With metrics enabled the table records the chain length of the bucket of every get,
+ * hasKey, insert and remove and the duration of every resize, see HashTableMetrics.
  */
 
 package com.bhavesh.DataStructures.HashTable;
 
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-
-class Entry<K, V> {
-    int hash;
-    K key;
-    V value;
-
-    public Entry(K key, V value) {
-        this.key = key;
-        this.value = value;
-        this.hash = key.hashCode();
-    }
-
-    public boolean equals(Entry<K, V> other) {
-        if (hash != other.hash)
-            return false;
-        return key.equals(other.key);
-    }
-
-    @Override
-    public String toString() {
-        return key + " => " + value;
-    }
-}
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 @SuppressWarnings("unchecked")
 public class HashTableSeparateChaining<K, V> {
@@ -38,10 +32,21 @@ public class HashTableSeparateChaining<K, V> {
     private static final int DEFAULT_CAPACITY = 3;
     private static final double DEFAULT_LOAD_FACTOR = 0.75;
 
+    // Chain lengths at which a bucket is converted to a tree and back to a list
+    private static final int TREEIFY_THRESHOLD = 8;
+    private static final int UNTREEIFY_THRESHOLD = 6;
+
     private double maxLoadFactor;
     private int capacity, threshold, size = 0;
     private LinkedList<Entry<K, V>>[] table;
 
+    // The buckets which have been converted to trees, the matching list in
+    // table is null. Only allocated once the first bucket is converted
+    private TreeBucket<K, V>[] trees;
+
+    // Only allocated while metrics are enabled
+    private HashTableMetrics metrics;
+
     public HashTableSeparateChaining() {
         this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
     }
@@ -77,9 +82,33 @@ public class HashTableSeparateChaining<K, V> {
     // Clears all the contents of the hash table
     public void clear() {
         Arrays.fill(table, null);
+        trees = null;
         size = 0;
     }
 
+    // Enables or disables the recording of metrics. Enabling them starts from empty metrics
+    public void setMetricsEnabled(boolean enabled) {
+        if (!enabled) metrics = null;
+        else if (metrics == null) metrics = new HashTableMetrics("chain");
+    }
+
+    public boolean isMetricsEnabled() {
+        return metrics != null;
+    }
+
+    // Returns the metrics recorded so far, or null if metrics are disabled
+    public HashTableMetrics getMetrics() {
+        if (metrics != null) metrics.update(size, capacity, 0);
+        return metrics;
+    }
+
+    // Records the length of the chain of a bucket an operation is about to search
+    private void recordChainLength(int bucketIndex) {
+        if (metrics == null) return;
+        if (isTreeBucket(bucketIndex)) metrics.recordLength(trees[bucketIndex].size());
+        else metrics.recordLength(table[bucketIndex] == null ? 0 : table[bucketIndex].size());
+    }
+
     public boolean containsKey(K key) {
         return hasKey(key);
     }
@@ -87,6 +116,7 @@ public class HashTableSeparateChaining<K, V> {
     // Checks whether a key in present in the hash table
     public boolean hasKey(K key) {
         int bucketIndex = normalizeIndex(key.hashCode());
+        recordChainLength(bucketIndex);
         return bucketSeekEntry(bucketIndex, key) != null;
     }
 
@@ -104,6 +134,7 @@ public class HashTableSeparateChaining<K, V> {
         if (key == null) throw new IllegalArgumentException("Null key");
         Entry<K, V> newEntry = new Entry<>(key, value);
         int bucketIndex = normalizeIndex(newEntry.hash);
+        recordChainLength(bucketIndex);
         return bucketInsertEntry(bucketIndex, newEntry);
     }
 
@@ -114,6 +145,7 @@ public class HashTableSeparateChaining<K, V> {
 
         if (key == null) return null;
         int bucketIndex = normalizeIndex(key.hashCode());
+        recordChainLength(bucketIndex);
         Entry<K, V> entry = bucketSeekEntry(bucketIndex, key);
         if (entry != null) return entry.value;
         return null;
@@ -126,6 +158,7 @@ public class HashTableSeparateChaining<K, V> {
 
         if (key == null) return null;
         int bucketIndex = normalizeIndex(key.hashCode());
+        recordChainLength(bucketIndex);
         return bucketRemoveEntry(bucketIndex, key);
     }
 
@@ -133,7 +166,14 @@ public class HashTableSeparateChaining<K, V> {
     private V bucketRemoveEntry(int bucketIndex, K key) {
 
         Entry<K, V> entry = bucketSeekEntry(bucketIndex, key);
-        if (entry != null) {
+        if (entry != null && isTreeBucket(bucketIndex)) {
+            TreeBucket<K, V> tree = trees[bucketIndex];
+            tree.remove(entry);
+            size--;
+            if (tree.size() <= UNTREEIFY_THRESHOLD) untreeify(bucketIndex);
+            return entry.value;
+        }
+        else if (entry != null) {
             LinkedList<Entry<K, V>> links = table[bucketIndex];
             links.remove(entry);
             size--;
@@ -146,6 +186,20 @@ public class HashTableSeparateChaining<K, V> {
     // exist in the given bucket, if it does then update the entry value
     private V bucketInsertEntry(int bucketIndex, Entry<K, V> entry) {
 
+        if (isTreeBucket(bucketIndex)) {
+            TreeBucket<K, V> tree = trees[bucketIndex];
+            Entry<K, V> existentEntry = tree.find(entry.hash, entry.key);
+            if (existentEntry == null) {
+                tree.insert(entry);
+                size++;
+                if (size > threshold) resizeTable();
+                return null;
+            }
+            V oldValue = existentEntry.value;
+            existentEntry.value = entry.value;
+            return oldValue;
+        }
+
         LinkedList<Entry<K, V>> bucket = table[bucketIndex];
         if (bucket == null)
             table[bucketIndex] = bucket = new LinkedList<>();
@@ -154,6 +208,7 @@ public class HashTableSeparateChaining<K, V> {
         if (existentEntry == null) {
             bucket.add(entry);
             size++;
+            if (bucket.size() > TREEIFY_THRESHOLD) treeify(bucketIndex);
             if (size > threshold) resizeTable();
             return null;
         }
@@ -168,6 +223,7 @@ public class HashTableSeparateChaining<K, V> {
     private Entry<K, V> bucketSeekEntry(int bucketIndex, K key) {
 
         if (key == null) return null;
+        if (isTreeBucket(bucketIndex)) return trees[bucketIndex].find(key.hashCode(), key);
         LinkedList<Entry<K, V>> bucket = table[bucketIndex];
         if (bucket == null) return null;
         for (Entry<K, V> entry : bucket) {
@@ -177,37 +233,232 @@ public class HashTableSeparateChaining<K, V> {
         return null;
     }
 
+    private boolean isTreeBucket(int bucketIndex) {
+        return trees != null && trees[bucketIndex] != null;
+    }
+
+    // Converts the list of a bucket into a tree
+    private void treeify(int bucketIndex) {
+        if (trees == null) trees = (TreeBucket<K, V>[]) new TreeBucket<?, ?>[capacity];
+
+        TreeBucket<K, V> tree = new TreeBucket<>();
+        for (Entry<K, V> entry : table[bucketIndex]) tree.insert(entry);
+        trees[bucketIndex] = tree;
+        table[bucketIndex] = null;
+    }
+
+    // Converts the tree of a bucket back into a list
+    private void untreeify(int bucketIndex) {
+        LinkedList<Entry<K, V>> bucket = new LinkedList<>();
+        trees[bucketIndex].collect(bucket);
+        table[bucketIndex] = bucket;
+        trees[bucketIndex] = null;
+    }
+
+    // Collects the entries of a bucket into a list, whether it is a list or a tree
+    private List<Entry<K, V>> bucketEntries(int bucketIndex) {
+        if (isTreeBucket(bucketIndex)) {
+            List<Entry<K, V>> entries = new ArrayList<>(trees[bucketIndex].size());
+            trees[bucketIndex].collect(entries);
+            return entries;
+        }
+        return table[bucketIndex];
+    }
+
     // Resizes the internal table holding buckets of entries
     private void resizeTable() {
+        final long start = metrics == null ? 0 : System.nanoTime();
 
         capacity *= 2;
         threshold = (int) (capacity * maxLoadFactor);
 
-        LinkedList<Entry<K, V>>[] newTable = new LinkedList[capacity];
+        LinkedList<Entry<K, V>>[] oldTable = table;
+        TreeBucket<K, V>[] oldTrees = trees;
+        table = new LinkedList[capacity];
+        trees = null;
 
-        for (int i = 0; i < table.length; i++) {
-            if (table[i] != null) {
+        for (int i = 0; i < oldTable.length; i++) {
+            if (oldTable[i] != null || (oldTrees != null && oldTrees[i] != null)) {
 
-                for (Entry<K, V> entry : table[i]) {
+                List<Entry<K, V>> entries = oldTable[i];
+                if (entries == null) {
+                    entries = new ArrayList<>(oldTrees[i].size());
+                    oldTrees[i].collect(entries);
+                }
+
+                // Chains can only get shorter when the table grows, but a bucket
+                // full of keys with identical hashes still needs to be a tree
+                for (Entry<K, V> entry : entries) {
                     int bucketIndex = normalizeIndex(entry.hash);
-                    LinkedList<Entry<K, V>> bucket = newTable[bucketIndex];
-                    if (bucket == null) newTable[bucketIndex] = bucket = new LinkedList<>();
+                    if (isTreeBucket(bucketIndex)) {
+                        trees[bucketIndex].insert(entry);
+                        continue;
+                    }
+                    LinkedList<Entry<K, V>> bucket = table[bucketIndex];
+                    if (bucket == null) table[bucketIndex] = bucket = new LinkedList<>();
                     bucket.add(entry);
+                    if (bucket.size() > TREEIFY_THRESHOLD) treeify(bucketIndex);
                 }
 
                 // Avoid memory leak
-                table[i].clear();
-                table[i] = null;
+                if (oldTable[i] != null) oldTable[i].clear();
+                oldTable[i] = null;
             }
         }
-        table = newTable;
+
+        if (metrics != null) metrics.recordResize(System.nanoTime() - start);
+    }
+
+    // Calls the action for every key-value pair
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        for (Cursor cursor = cursor(); cursor.advance(); ) action.accept(cursor.key(), cursor.value());
+    }
+
+    // Returns a cursor positioned before the first key-value pair, see Cursor
+    public Cursor cursor() {
+        return new Cursor(0, capacity);
+    }
+
+    // A cursor over the key-value pairs of the table which can be reset and reused. The
+    // entries of the current bucket are copied into a buffer owned by the cursor, which
+    // only grows when a tree bucket holds more entries than any bucket seen before, so
+    // repeated scans allocate nothing. The table must not be modified during a scan other
+    // than by replacing values through setValue()
+    public final class Cursor {
+        private int nextBucket, fence;
+        private Entry<K, V>[] bucket = newBucket(TREEIFY_THRESHOLD + 1);
+        private int bucketLength, position;
+        private Entry<K, V> entry;
+
+        private Cursor(int origin, int fence) {
+            nextBucket = origin;
+            this.fence = fence;
+        }
+
+        // Moves to the next key-value pair, returns false once every pair has been visited
+        public boolean advance() {
+            while (position == bucketLength) {
+                if (nextBucket >= fence) {
+                    // Avoid memory leak
+                    Arrays.fill(bucket, 0, bucketLength, null);
+                    bucketLength = position = 0;
+                    entry = null;
+                    return false;
+                }
+                loadBucket(nextBucket++);
+            }
+            entry = bucket[position++];
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Entry<K, V>[] newBucket(int length) {
+            return (Entry<K, V>[]) new Entry<?, ?>[length];
+        }
+
+        private void loadBucket(int bucketIndex) {
+            position = 0;
+            if (isTreeBucket(bucketIndex)) {
+                TreeBucket<K, V> tree = trees[bucketIndex];
+                if (tree.size() > bucket.length) bucket = newBucket(tree.size());
+                bucketLength = tree.collect(bucket, 0);
+            } else if (table[bucketIndex] != null) {
+                LinkedList<Entry<K, V>> links = table[bucketIndex];
+                if (links.size() > bucket.length) bucket = newBucket(links.size());
+                bucketLength = links.size();
+                links.toArray(bucket);
+            } else {
+                bucketLength = 0;
+            }
+        }
+
+        public K key() {
+            return entry.key;
+        }
+
+        public V value() {
+            return entry.value;
+        }
+
+        public void setValue(V value) {
+            entry.value = value;
+        }
+
+        // Moves the cursor back before the first key-value pair
+        public void reset() {
+            Arrays.fill(bucket, 0, bucketLength, null);
+            nextBucket = bucketLength = position = 0;
+            fence = capacity;
+            entry = null;
+        }
+    }
+
+    // Spliterators over the keys, values and key-value pairs. The
+    // table must not be modified while a spliterator is in use
+    public Spliterator<K> keySpliterator() {
+        return spliterator((key, value) -> key, Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    public Spliterator<V> valueSpliterator() {
+        return spliterator((key, value) -> value, 0);
+    }
+
+    public Spliterator<Map.Entry<K, V>> entrySpliterator() {
+        return spliterator(AbstractMap.SimpleImmutableEntry::new, Spliterator.DISTINCT | Spliterator.NONNULL);
+    }
+
+    private <T> Spliterator<T> spliterator(BiFunction<K, V, T> element, int characteristics) {
+        return new BucketSpliterator<>(new Cursor(0, capacity), size, element, characteristics);
+    }
+
+    // Walks a range of buckets with a cursor and splits off half of the buckets it has not
+    // started yet. The entries of the bucket the cursor is in stay with this spliterator
+    private final class BucketSpliterator<T> implements Spliterator<T> {
+        private final Cursor cursor;
+        private final BiFunction<K, V, T> element;
+        private final int characteristics;
+        private long estimate;
+
+        BucketSpliterator(Cursor cursor, long estimate, BiFunction<K, V, T> element, int characteristics) {
+            this.cursor = cursor;
+            this.estimate = estimate;
+            this.element = element;
+            this.characteristics = characteristics;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (!cursor.advance()) return false;
+            action.accept(element.apply(cursor.key(), cursor.value()));
+            return true;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int lo = cursor.nextBucket, mid = (lo + cursor.fence) >>> 1;
+            if (lo >= mid) return null;
+            cursor.nextBucket = mid;
+            estimate >>>= 1;
+            return new BucketSpliterator<>(new Cursor(lo, mid), estimate, element, characteristics);
+        }
+
+        @Override
+        public long estimateSize() {
+            return estimate;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
     }
 
     // Returns the list of keys found within the hash table
     public List<K> keys() {
 
         List<K> keys = new ArrayList<>(size());
-        for (LinkedList<Entry<K, V>> bucket : table) {
+        for (int i = 0; i < capacity; i++) {
+            List<Entry<K, V>> bucket = bucketEntries(i);
             if (bucket != null) {
                 for (Entry<K, V> entry : bucket) {
                     keys.add(entry.key);
@@ -221,7 +472,8 @@ public class HashTableSeparateChaining<K, V> {
     public List<V> values() {
 
         List<V> values = new ArrayList<>(size());
-        for (LinkedList<Entry<K, V>> bucket : table) {
+        for (int i = 0; i < capacity; i++) {
+            List<Entry<K, V>> bucket = bucketEntries(i);
             if (bucket != null) {
                 for (Entry<K, V> entry : bucket) {
                     values.add(entry.value);
@@ -238,8 +490,9 @@ public class HashTableSeparateChaining<K, V> {
         StringBuilder sb = new StringBuilder();
         sb.append("{");
         for (int i = 0; i < capacity; i++) {
-            if (table[i] == null) continue;
-            for (Entry<K, V> entry : table[i]) sb.append(entry + ", ");
+            List<Entry<K, V>> bucket = bucketEntries(i);
+            if (bucket == null) continue;
+            for (Entry<K, V> entry : bucket) sb.append(entry + ", ");
         }
         sb.append("}");
         return sb.toString();
@@ -0,0 +1,311 @@
+/*
+ * An implementation of a hash table using open addressing with group probing, following the
+ * layout of Google's Swiss tables
+ *
+ * Next to the keys and values the table keeps one control byte per slot. A control byte is
+ * either EMPTY, DELETED or, for a full slot, the low 7 bits of the key's hash (H2). The slots
+ * are split into groups of 8 whose control bytes are packed into a single long, so a whole
+ * group can be tested for a matching H2 or an empty slot with a handful of arithmetic
+ * operations on one word (SWAR - SIMD within a register). Only slots whose H2 matches are
+ * compared with equals(), which with 7 bits of hash means almost never a wrong key.
+ *
+ * The groups themselves are probed quadratically using the remaining hash bits (H1). A lookup
+ * ends at the first group that contains an EMPTY slot, so the table stays fast at load
+ * factors where slot by slot probing produces long probe chains.
+ */
+
+package com.bhavesh.DataStructures.HashTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@SuppressWarnings("unchecked")
+public class HashTableSwiss<K, V> {
+
+    // The number of slots in a group, one control byte per slot in a long
+    private static final int GROUP_WIDTH = 8;
+
+    // Control byte values. A full slot stores its 7 bit H2 so the top bit is clear
+    private static final int EMPTY = 0xFF;
+    private static final int DELETED = 0x80;
+
+    // Constants to operate on all 8 bytes of a group at once
+    private static final long LSB = 0x0101010101010101L;
+    private static final long MSB = 0x8080808080808080L;
+    private static final long ALL_EMPTY = -1L;
+
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final double DEFAULT_LOAD_FACTOR = 0.875;
+
+    private double loadFactor;
+    private int capacity, threshold;
+
+    // To keep track of the total number of used slots inside the
+    // hash table (includes slots marked as deleted)
+    private int usedBuckets;
+
+    // To keep track of the number of unique keys currently inside the hash table
+    private int keyCount;
+
+    // The control bytes of every group packed into longs, and the key-value pairs
+    private long[] control;
+    private K[] keys;
+    private V[] values;
+
+    public HashTableSwiss() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    public HashTableSwiss(int capacity) {
+        this(capacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    public HashTableSwiss(int capacity, double loadFactor) {
+        if (capacity <= 0) throw new IllegalArgumentException("Invalid capacity");
+
+        if (loadFactor <= 0 || loadFactor >= 1 || Double.isNaN(loadFactor))
+            throw new IllegalArgumentException("Invalid load factor");
+
+        this.loadFactor = loadFactor;
+        allocateTable(nextPowerOfTwo(Math.max(GROUP_WIDTH, capacity)));
+    }
+
+    // Returns the smallest power of two greater than or equal to n
+    private static int nextPowerOfTwo(int n) {
+        int pow2 = Integer.highestOneBit(n);
+        return pow2 == n ? n : pow2 << 1;
+    }
+
+    private void allocateTable(int capacity) {
+        this.capacity = capacity;
+
+        // Always leave at least one empty slot so that every probe terminates
+        threshold = Math.min(capacity - 1, (int) (capacity * loadFactor));
+
+        control = new long[capacity / GROUP_WIDTH];
+        Arrays.fill(control, ALL_EMPTY);
+        keys = (K[]) new Object[capacity];
+        values = (V[]) new Object[capacity];
+    }
+
+    public void clear() {
+        Arrays.fill(control, ALL_EMPTY);
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        keyCount = usedBuckets = 0;
+    }
+
+    // Returns the number of keys inside the hash table
+    public int size() {
+        return keyCount;
+    }
+
+    // Returns the capacity of the hashtable
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Returns true/false depending on whether the hash table is empty
+    public boolean isEmpty() {
+        return keyCount == 0;
+    }
+
+    public V put(K key, V value) {
+        return insert(key, value);
+    }
+
+    public V add(K key, V value) {
+        return insert(key, value);
+    }
+
+    // Returns true/false depending on whether a given key exists within the hash table
+    public boolean containsKey(K key) {
+        return hasKey(key);
+    }
+
+    /* Group operations */
+
+    // Mixes the hash code (murmur3 finalizer) so that both H1 and H2 are well distributed
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        return hash ^ (hash >>> 16);
+    }
+
+    // Returns a mask with the top bit set in every byte of the group equal to h2. Like every
+    // SWAR zero byte test this can report a false positive right above a true match, which is
+    // harmless because every candidate slot is verified with equals() anyway
+    private static long matchByte(long group, int h2) {
+        long x = group ^ (LSB * h2);
+        return (x - LSB) & ~x & MSB;
+    }
+
+    // Returns a mask with the top bit set in every EMPTY byte (the only control byte
+    // value with both of its two top bits set)
+    private static long matchEmpty(long group) {
+        return group & (group << 1) & MSB;
+    }
+
+    // Returns a mask with the top bit set in every EMPTY or DELETED byte
+    private static long matchEmptyOrDeleted(long group) {
+        return group & MSB;
+    }
+
+    // Converts the lowest bit of a match mask to the slot offset inside the group
+    private static int lowestSlot(long mask) {
+        return Long.numberOfTrailingZeros(mask) >>> 3;
+    }
+
+    private void setControl(int slot, int controlByte) {
+        int shift = (slot & (GROUP_WIDTH - 1)) << 3;
+        int group = slot / GROUP_WIDTH;
+        control[group] = (control[group] & ~(0xFFL << shift)) | ((long) controlByte << shift);
+    }
+
+    // Finds the slot holding the key, returns -1 if the key does not exist
+    private int find(K key, int hash) {
+        final int h2 = hash & 0x7F, groupMask = control.length - 1;
+
+        for (int g = (hash >>> 7) & groupMask, step = 1; ; g = (g + step++) & groupMask) {
+            long group = control[g];
+
+            for (long match = matchByte(group, h2); match != 0; match &= match - 1) {
+                int slot = g * GROUP_WIDTH + lowestSlot(match);
+                if (keys[slot].equals(key)) return slot;
+            }
+
+            // An empty slot in the group means the key was never pushed past it
+            if (matchEmpty(group) != 0) return -1;
+        }
+    }
+
+    // Finds the first EMPTY or DELETED slot along the probe sequence of a hash
+    private int findInsertSlot(int hash) {
+        final int groupMask = control.length - 1;
+
+        for (int g = (hash >>> 7) & groupMask, step = 1; ; g = (g + step++) & groupMask) {
+            long match = matchEmptyOrDeleted(control[g]);
+            if (match != 0) return g * GROUP_WIDTH + lowestSlot(match);
+        }
+    }
+
+    /* Hash table operations */
+
+    // Place a key-value pair in the hash table. If the value already
+    // exists inside the hash table then the value is updated
+    public V insert(K key, V value) {
+        if (key == null) throw new IllegalArgumentException("Null key");
+        final int hash = mix(key.hashCode());
+
+        int slot = find(key, hash);
+        if (slot != -1) {
+            V oldValue = values[slot];
+            values[slot] = value;
+            return oldValue;
+        }
+
+        if (usedBuckets >= threshold) resizeTable();
+
+        slot = findInsertSlot(hash);
+        if (controlByte(slot) == EMPTY) usedBuckets++;
+        setControl(slot, hash & 0x7F);
+        keys[slot] = key;
+        values[slot] = value;
+        keyCount++;
+        return null;
+    }
+
+    // Returns true/false depending on whether a given key exists in the hash table
+    public boolean hasKey(K key) {
+        if (key == null) throw new IllegalArgumentException("Null key");
+        return find(key, mix(key.hashCode())) != -1;
+    }
+
+    // Get the value associated with the input key
+    public V get(K key) {
+        if (key == null) throw new IllegalArgumentException("Null key");
+        int slot = find(key, mix(key.hashCode()));
+        return slot == -1 ? null : values[slot];
+    }
+
+    // Removes a key from the hash table and returns the value
+    public V remove(K key) {
+        if (key == null) throw new IllegalArgumentException("Null key");
+
+        int slot = find(key, mix(key.hashCode()));
+        if (slot == -1) return null;
+
+        V oldValue = values[slot];
+        keys[slot] = null;
+        values[slot] = null;
+        keyCount--;
+
+        // Groups are aligned, so if the group still has an empty slot every probe sequence
+        // through it stops here and the slot can be freed instead of marked as deleted
+        if (matchEmpty(control[slot / GROUP_WIDTH]) != 0) {
+            setControl(slot, EMPTY);
+            usedBuckets--;
+        } else {
+            setControl(slot, DELETED);
+        }
+        return oldValue;
+    }
+
+    private int controlByte(int slot) {
+        return (int) (control[slot / GROUP_WIDTH] >>> ((slot & (GROUP_WIDTH - 1)) << 3)) & 0xFF;
+    }
+
+    // Doubles the size of the hash table, or rehashes at the same size
+    // when most of the used slots are deleted ones
+    private void resizeTable() {
+        K[] oldKeys = keys;
+        V[] oldValues = values;
+
+        allocateTable(keyCount >= usedBuckets / 2 ? capacity * 2 : capacity);
+        usedBuckets = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == null) continue;
+            int hash = mix(oldKeys[i].hashCode());
+            int slot = findInsertSlot(hash);
+            setControl(slot, hash & 0x7F);
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+            usedBuckets++;
+        }
+    }
+
+    // Returns a list of keys present in the hash table
+    public List<K> keys() {
+        List<K> hashTableKeys = new ArrayList<>(size());
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] != null) hashTableKeys.add(keys[i]);
+        }
+        return hashTableKeys;
+    }
+
+    // Returns a list of non-unique values present in the hash table
+    public List<V> values() {
+        List<V> hashTableValues = new ArrayList<>(size());
+        for (int i = 0; i < capacity; i++) {
+            if (keys[i] != null) hashTableValues.add(values[i]);
+        }
+        return hashTableValues;
+    }
+
+    // Return a String representation of this hash-table.
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("{");
+        for (int i = 0; i < capacity; i++)
+            if (keys[i] != null) sb.append(keys[i] + " => " + values[i] + ", ");
+        sb.append("}");
+
+        return sb.toString();
+    }
+}
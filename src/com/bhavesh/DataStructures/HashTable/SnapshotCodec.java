@@ -0,0 +1,64 @@
+/*
+ * Converts keys or values to and from bytes for the snapshots of the open addressing
+ * hash tables (see HashTableOpenAddressingBase.writeSnapshot)
+ */
+
+package com.bhavesh.DataStructures.HashTable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+public interface SnapshotCodec<T> {
+
+    // The number of bytes write() puts into the buffer for the object
+    public int size(T object);
+
+    public void write(T object, ByteBuffer buffer);
+
+    // Reads an object which write() stored in size bytes
+    public T read(ByteBuffer buffer, int size);
+
+    public static final SnapshotCodec<Integer> INTEGER = new SnapshotCodec<Integer>() {
+        public int size(Integer object) {
+            return Integer.BYTES;
+        }
+
+        public void write(Integer object, ByteBuffer buffer) {
+            buffer.putInt(object);
+        }
+
+        public Integer read(ByteBuffer buffer, int size) {
+            return buffer.getInt();
+        }
+    };
+
+    public static final SnapshotCodec<Long> LONG = new SnapshotCodec<Long>() {
+        public int size(Long object) {
+            return Long.BYTES;
+        }
+
+        public void write(Long object, ByteBuffer buffer) {
+            buffer.putLong(object);
+        }
+
+        public Long read(ByteBuffer buffer, int size) {
+            return buffer.getLong();
+        }
+    };
+
+    public static final SnapshotCodec<String> STRING = new SnapshotCodec<String>() {
+        public int size(String object) {
+            return object.getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        public void write(String object, ByteBuffer buffer) {
+            buffer.put(object.getBytes(StandardCharsets.UTF_8));
+        }
+
+        public String read(ByteBuffer buffer, int size) {
+            byte[] bytes = new byte[size];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+}
@@ -0,0 +1,239 @@
+/*
+ * A bucket of a separate chaining hash table stored as an AVL tree instead of a linked list,
+ * used once a bucket collects too many entries so lookups stay O(log(n)) even when many
+ * keys collide
+ *
+ * Entries are ordered by their hash first. Entries with equal hashes are ordered by the
+ * class name of their keys and then by compareTo() when the keys are Comparable. Entries
+ * which still tie (e.g. keys that are not Comparable) may end up on either side of each
+ * other, so a lookup that hits a tie searches both subtrees.
+ */
+
+package com.bhavesh.DataStructures.HashTable;
+
+import java.util.List;
+
+@SuppressWarnings("unchecked")
+class TreeBucket<K, V> {
+
+    private class Node {
+        // The balance factor
+        private int bf;
+
+        // The entry contained within the node
+        private Entry<K, V> entry;
+
+        // The height of this node in the tree
+        private int height;
+
+        // The left and right children of this node
+        private Node left, right;
+
+        public Node(Entry<K, V> entry) {
+            this.entry = entry;
+        }
+    }
+
+    // The root of the AVL tree
+    private Node root;
+
+    // Tracks the number of nodes in the tree
+    private int nodeCount = 0;
+
+    // Set by the recursive remove once the entry has been found
+    private boolean removed;
+
+    // Returns the number of entries in the tree
+    public int size() {
+        return nodeCount;
+    }
+
+    // Compares a key with the key of an entry, see the ordering described above
+    private int compare(int hash, K key, Entry<K, V> entry) {
+        if (hash != entry.hash) return hash < entry.hash ? -1 : 1;
+
+        Class<?> keyClass = key.getClass(), entryKeyClass = entry.key.getClass();
+        if (keyClass != entryKeyClass) return keyClass.getName().compareTo(entryKeyClass.getName());
+
+        if (key instanceof Comparable) return ((Comparable<Object>) key).compareTo(entry.key);
+        return 0;
+    }
+
+    // Finds the entry with the given key, returns null if it does not exist, O(log(n))
+    public Entry<K, V> find(int hash, K key) {
+        return find(root, hash, key);
+    }
+
+    private Entry<K, V> find(Node node, int hash, K key) {
+        while (node != null) {
+            int compareValue = compare(hash, key, node.entry);
+
+            if (compareValue < 0) node = node.left;
+            else if (compareValue > 0) node = node.right;
+            else {
+                if (node.entry.key.equals(key)) return node.entry;
+
+                // Tied with a different key, the entry could be in either subtree
+                Entry<K, V> entry = find(node.left, hash, key);
+                if (entry != null) return entry;
+                node = node.right;
+            }
+        }
+        return null;
+    }
+
+    // Inserts an entry whose key is not already in the tree, O(log(n))
+    public void insert(Entry<K, V> entry) {
+        root = insert(root, entry);
+        nodeCount++;
+    }
+
+    private Node insert(Node node, Entry<K, V> entry) {
+
+        // Base case
+        if (node == null)
+            return new Node(entry);
+
+        int compareValue = compare(entry.hash, entry.key, node.entry);
+
+        // Break ties arbitrarily (but consistently) to keep the tree balanced
+        if (compareValue == 0)
+            compareValue = Integer.compare(System.identityHashCode(entry.key), System.identityHashCode(node.entry.key));
+
+        if (compareValue <= 0)
+            node.left = insert(node.left, entry);
+        else
+            node.right = insert(node.right, entry);
+
+        update(node);
+        return balance(node);
+    }
+
+    // Removes an entry previously returned by find, O(log(n))
+    public void remove(Entry<K, V> entry) {
+        removed = false;
+        root = remove(root, entry);
+        if (removed) nodeCount--;
+    }
+
+    private Node remove(Node node, Entry<K, V> entry) {
+        if (node == null)
+            return null;
+
+        if (node.entry == entry) {
+            removed = true;
+
+            // Only a right subtree or no subtree at all
+            if (node.left == null)
+                return node.right;
+
+            // Only a left subtree
+            if (node.right == null)
+                return node.left;
+
+            // Replace the entry with its in-order successor and
+            // remove the successor from the right subtree
+            Node successor = node.right;
+            while (successor.left != null) successor = successor.left;
+            node.entry = successor.entry;
+            node.right = removeMin(node.right);
+        } else {
+            int compareValue = compare(entry.hash, entry.key, node.entry);
+
+            if (compareValue < 0)
+                node.left = remove(node.left, entry);
+            else if (compareValue > 0)
+                node.right = remove(node.right, entry);
+            else {
+                node.left = remove(node.left, entry);
+                if (!removed) node.right = remove(node.right, entry);
+            }
+        }
+
+        update(node);
+        return balance(node);
+    }
+
+    // Removes the leftmost node of a subtree
+    private Node removeMin(Node node) {
+        if (node.left == null)
+            return node.right;
+        node.left = removeMin(node.left);
+        update(node);
+        return balance(node);
+    }
+
+    // Adds all the entries of the tree to the list in order
+    public void collect(List<Entry<K, V>> entries) {
+        collect(root, entries);
+    }
+
+    private void collect(Node node, List<Entry<K, V>> entries) {
+        if (node == null) return;
+        collect(node.left, entries);
+        entries.add(node.entry);
+        collect(node.right, entries);
+    }
+
+    // Copies the entries of the tree in order into the array starting at index and returns
+    // the index after the last entry copied. The array must have room for size() entries
+    public int collect(Entry<K, V>[] entries, int index) {
+        return collect(root, entries, index);
+    }
+
+    private int collect(Node node, Entry<K, V>[] entries, int index) {
+        if (node == null) return index;
+        index = collect(node.left, entries, index);
+        entries[index++] = node.entry;
+        return collect(node.right, entries, index);
+    }
+
+    // Update a node's height and balance factor
+    private void update(Node node) {
+
+        int leftNodeHeight = (node.left == null) ? -1 : node.left.height;
+        int rightNodeHeight = (node.right == null) ? -1 : node.right.height;
+
+        node.height = 1 + Math.max(leftNodeHeight, rightNodeHeight);
+        node.bf = rightNodeHeight - leftNodeHeight;
+    }
+
+    // Re-balance a node if its balance factor is +2 or -2
+    private Node balance(Node node) {
+
+        // Left heavy subtree
+        if (node.bf == -2) {
+            if (node.left.bf > 0)
+                node.left = leftRotation(node.left);
+            return rightRotation(node);
+        }
+
+        // Right heavy subtree
+        else if (node.bf == +2) {
+            if (node.right.bf < 0)
+                node.right = rightRotation(node.right);
+            return leftRotation(node);
+        }
+
+        // Node has a balance factor of either 0, +1 or -1
+        return node;
+    }
+
+    private Node leftRotation(Node node) {
+        Node newParent = node.right;
+        node.right = newParent.left;
+        newParent.left = node;
+        update(node);
+        update(newParent);
+        return newParent;
+    }
+
+    private Node rightRotation(Node node) {
+        Node newParent = node.left;
+        node.left = newParent.right;
+        newParent.right = node;
+        update(node);
+        update(newParent);
+        return newParent;
+    }
+}
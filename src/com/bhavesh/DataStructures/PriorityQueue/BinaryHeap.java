@@ -1,10 +1,18 @@
 /*
  * A min priority queue implementation using binary heap
+ *
+ * Batches are handled in bulk. addAll() appends a large batch to the end of the heap and
+ * restores the heap bottom-up, sinking only the ancestors of the new elements level by
+ * level, which takes O(k + log(n)) sinks for k elements instead of k swims. pollN() removes
+ * the k smallest elements into a caller array, refilling the root after each removal by
+ * moving the hole down to a leaf along the smaller children and then swimming the last
+ * element up from there, about half the comparisons of a regular sink.
  */
 
 package com.bhavesh.DataStructures.PriorityQueue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 
@@ -42,13 +50,10 @@ public class BinaryHeap<T extends Comparable<T>> {
             sink(i);
     }
 
-    // Priority queue construction, O(nlog(n))
+    // Construct a priority queue using heapify in O(n) time
     public BinaryHeap(Collection<T> elements) {
         this(elements.size());
-        for (T element : elements) {
-            heap.add(element);
-        }
-        heapSize = heapCapacity = elements.size();
+        addAll(elements);
     }
 
     // Check if priority queue is empty
@@ -109,6 +114,102 @@ public class BinaryHeap<T extends Comparable<T>> {
         heapSize++;
     }
 
+    // Add all elements of the array to the priority queue, the elements must not be null
+    public void addAll(T[] elements) {
+        addAll(Arrays.asList(elements));
+    }
+
+    // Add all elements of the collection to the priority queue, the elements must not be
+    // null. A swim costs O(1) on average but O(log(n)) for elements smaller than most of
+    // the heap, so a batch of at least a quarter of the heap is appended and re-heapified
+    // bottom-up instead, O(k + log(n)) in the worst case
+    public void addAll(Collection<? extends T> elements) {
+        for (T element : elements) {
+            if (element == null)
+                throw new IllegalArgumentException();
+        }
+
+        final int k = elements.size();
+        if (4 * k < heapSize) {
+            for (T element : elements) add(element);
+            return;
+        }
+
+        final int start = heapSize;
+        for (T element : elements) {
+            if (heapSize < heapCapacity) {
+                heap.set(heapSize, element);
+            }
+            else {
+                heap.add(element);
+                heapCapacity++;
+            }
+            heapSize++;
+        }
+        if (k > 0) heapifyRange(start, heapSize - 1);
+    }
+
+    // Removes the k smallest elements (fewer if the heap is smaller) and stores them in
+    // ascending order at the start of results. Returns the number of elements removed
+    public int pollN(int k, T[] results) {
+        if (k < 0)
+            throw new IllegalArgumentException("Invalid count");
+        if (results.length < k)
+            throw new IllegalArgumentException("Results array is too small");
+
+        final int n = Math.min(k, heapSize);
+
+        // Taking every element is a plain sort
+        if (n == heapSize) {
+            for (int i = 0; i < n; i++) results[i] = heap.get(i);
+            Arrays.sort(results, 0, n);
+            clear();
+            return n;
+        }
+
+        for (int i = 0; i < n; i++) {
+            results[i] = heap.get(0);
+            heapSize--;
+            T last = heap.get(heapSize);
+            heap.set(heapSize, null);
+            replaceRoot(last);
+        }
+        return n;
+    }
+
+    // Restores the heap after the nodes [lo, hi] have been appended. The ancestors of a
+    // contiguous range of nodes form a contiguous range on every level, so sinking those
+    // ranges from the bottom level up only touches about k + log(n) nodes
+    private void heapifyRange(int lo, int hi) {
+        while (hi > 0) {
+            lo = (lo - 1) / 2;
+            hi = (hi - 1) / 2;
+            for (int i = hi; i >= lo; i--)
+                sink(i);
+        }
+    }
+
+    // Fills the empty root with the given element. The hole moves down to a leaf along the
+    // smaller children, one comparison per level, and the element then swims up from the
+    // leaf, which it usually belongs close to since it came from the bottom of the heap
+    private void replaceRoot(T element) {
+        int hole = 0;
+        while (true) {
+            int left = 2 * hole + 1;
+            if (left >= heapSize)
+                break;
+
+            int smallest = left;
+            if (left + 1 < heapSize && less(left + 1, left))
+                smallest = left + 1;
+
+            heap.set(hole, heap.get(smallest));
+            hole = smallest;
+        }
+        heap.set(hole, element);
+        swim(hole);
+    }
+
     // Test if the value of node i <= node j
     // This method assumes i & j are valid indices, O(1)
     private boolean less(int i, int j) {
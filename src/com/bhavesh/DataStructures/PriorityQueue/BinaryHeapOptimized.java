@@ -1,46 +1,66 @@
 /*
  * A min priority queue implementation using binary heap. This  implementation tracks
  * each element inside the binary heap with a hashtable for quick removals
+ *
+ * The hashtable is a flat open addressing index built from int arrays. Each of its slots
+ * holds the heap position of one element together with the element's cached hash code,
+ * and slotOf maps every heap position back to its slot. Moving an element during a
+ * swim or sink therefore updates two ints instead of allocating in a map of TreeSets,
+ * and contains and remove find an element with a short linear probe comparing cached
+ * hash codes before calling equals(). Equal elements simply occupy separate slots.
  */
 package com.bhavesh.DataStructures.PriorityQueue;
 
-import java.util.*;
+import java.util.Arrays;
+import java.util.Collection;
 
 public class BinaryHeapOptimized<T extends Comparable<T>> {
 
     // The number of elements currently insisde the heap
     private int heapSize = 0;
 
-    // The internal capacity of the heap
-    private int heapCapacity = 0;
+    // The elements of the heap, its length is the internal capacity of the heap
+    private T[] heap;
 
-    // A dynamic list to track the elements inside the heap
-    private List<T> heap;
+    // The slot of the index holding each heap position
+    private int[] slotOf;
 
-    // A map to keep track of the possible indices of a particular node value to check if is found in the heap
-    // Having this  mapping lets us have O(log(n)) removals and O(1) element containment check
-    // at the cost of some additional space and minor overhead
-    private Map<T, TreeSet<Integer>> map = new HashMap<>();
+    // The open addressing index. A slot holds the heap position of an element or one of
+    // the markers below, next to the hash code of that element. The number of slots is a
+    // power of two and used slots (including deleted ones) never exceed 3/4 of them
+    private int[] slots, slotHashes;
+    private int usedSlots;
+
+    private static final int EMPTY = -1, DELETED = -2;
+    private static final int MIN_SLOTS = 16;
+
+    // 2^32 divided by the golden ratio, used to spread the hash codes over the slots
+    private static final int FIBONACCI_MULTIPLIER = 0x9E3779B9;
 
     public BinaryHeapOptimized() {
         this(1);
     }
 
     // Construct a priority queue with an initial capacity
+    @SuppressWarnings("unchecked")
     public BinaryHeapOptimized(int size) {
-        heap = new ArrayList<>(size);
+        heap = (T[]) new Comparable<?>[Math.max(1, size)];
+        slotOf = new int[heap.length];
+        allocateSlots(heap.length);
     }
 
     // Construct a priority queue using heapify in O(n) time
     public BinaryHeapOptimized(T[] elements) {
-        heapSize = heapCapacity = elements.length;
-        heap = new ArrayList<T>(heapCapacity);
+        this(elements.length);
 
         // Place all elements in the heap
-        for (int i = 0; i < heapSize; i++) {
-            mapAdd(elements[i], i);
-            heap.add(elements[i]);
+        for (int i = 0; i < elements.length; i++) {
+            if (elements[i] == null)
+                throw new IllegalArgumentException();
+            heap[i] = elements[i];
+            indexAdd(i);
         }
+        heapSize = elements.length;
 
         //  Heapify process
         for (int i = Math.max(0, (heapSize / 2) - 1); i >= 0; i--) {
@@ -54,7 +74,6 @@ public class BinaryHeapOptimized<T extends Comparable<T>> {
         for (T element : elements) {
             add(element);
         }
-        heapSize = heapCapacity = elements.size();
     }
 
     // Check if priority queue is empty
@@ -64,11 +83,9 @@ public class BinaryHeapOptimized<T extends Comparable<T>> {
 
     // Clear everything inside the heap, O(n)
     public void clear() {
-        for (int i = 0; i < heapCapacity; i++) {
-            heap.set(i, null);
-        }
-        heapSize = 0;
-        map.clear();
+        Arrays.fill(heap, 0, heapSize, null);
+        Arrays.fill(slots, EMPTY);
+        heapSize = usedSlots = 0;
     }
 
     // Return the size of the heap
@@ -81,7 +98,7 @@ public class BinaryHeapOptimized<T extends Comparable<T>> {
     public T peek() {
         if (isEmpty())
             return null;
-        return heap.get(0);
+        return heap[0];
     }
 
     // Removes the root of the heap, O(log(n))
@@ -92,17 +109,10 @@ public class BinaryHeapOptimized<T extends Comparable<T>> {
     // Test if an element is in the heap, O(1)
     public boolean contains(T element) {
 
-        // Map lookup to check containment
+        // Index lookup to check containment
         if (element == null)
             return false;
-        return map.containsKey(element);
-
-//        for (int i = 0; i < heapSize; i++) {
-//            if (heap.get(i).equals(element)) {
-//                return true;
-//            }
-//        }
-//        return false;
+        return indexFind(element) != -1;
     }
 
     // Add an element to the priority queue, the element must not be null, O(log(n))
@@ -110,15 +120,13 @@ public class BinaryHeapOptimized<T extends Comparable<T>> {
         if (element == null)
             throw new IllegalArgumentException();
 
-        if (heapSize < heapCapacity) {
-            heap.set(heapSize, element);
-        }
-        else {
-            heap.add(element);
-            heapCapacity++;
+        if (heapSize == heap.length) {
+            heap = Arrays.copyOf(heap, 2 * heap.length);
+            slotOf = Arrays.copyOf(slotOf, heap.length);
         }
 
-        mapAdd(element, heapSize);
+        heap[heapSize] = element;
+        indexAdd(heapSize);
 
         swim(heapSize);
         heapSize++;
@@ -127,9 +135,7 @@ public class BinaryHeapOptimized<T extends Comparable<T>> {
     // Test if the value of node i <= node j
     // This method assumes i & j are valid indices, O(1)
     private boolean less(int i, int j) {
-        T node1 = heap.get(i);
-        T node2 = heap.get(j);
-        return node1.compareTo(node2) <= 0;
+        return heap[i].compareTo(heap[j]) <= 0;
     }
 
     // Perform bottom-up node swim, O(log(n))
@@ -175,15 +181,18 @@ public class BinaryHeapOptimized<T extends Comparable<T>> {
         }
     }
 
-    // Swap two nodes. Assumes i & j are valid, O(1)
+    // Swap two nodes and point their index slots to their new positions. Assumes i & j are valid, O(1)
     private void swap(int i, int j) {
-        T valueAti = heap.get(i);
-        T valueAtj = heap.get(j);
+        T valueAti = heap[i];
+        heap[i] = heap[j];
+        heap[j] = valueAti;
 
-        heap.set(i, valueAtj);
-        heap.set(j, valueAti);
+        int slotAti = slotOf[i];
+        slotOf[i] = slotOf[j];
+        slotOf[j] = slotAti;
 
-        mapSwap(valueAti, valueAtj, i, j);
+        slots[slotOf[i]] = i;
+        slots[slotOf[j]] = j;
     }
 
     // Removes a particular element in the heap, O(log(n))
@@ -191,20 +200,12 @@ public class BinaryHeapOptimized<T extends Comparable<T>> {
         if (element == null)
             return false;
 
-//        // Linear removal via search, O(n)
-//        for (int i = 0; i < heapSize; i++) {
-//            if (element.equals(heap.get(i))) {
-//                removeAt(i);
-//                return true;
-//            }
-//        }
-
-        // Logarithmic removal with map, O(log(n))
-        Integer index = mapGet(element);
-        if (index != null)
+        // Logarithmic removal with the index, O(log(n))
+        int index = indexFind(element);
+        if (index != -1)
             removeAt(index);
 
-        return index != null;
+        return index != -1;
     }
 
     // Remove a node at particular index, O(log(n))
@@ -213,24 +214,24 @@ public class BinaryHeapOptimized<T extends Comparable<T>> {
             return null;
 
         heapSize--;
-        T removedData = heap.get(i);
+        T removedData = heap[i];
         swap(i, heapSize);
 
         // Delete the value
-        heap.set(heapSize, null);
-        mapRemove(removedData, heapSize);
+        heap[heapSize] = null;
+        slots[slotOf[heapSize]] = DELETED;
 
         // Check if the last element was removed
         if (i == heapSize)
             return removedData;
 
-        T element = heap.get(i);
+        T element = heap[i];
 
         // Try sinking the element
         sink(i);
 
         // If sinking did not work try swimming
-        if (heap.get(i).equals(element))
+        if (heap[i] == element)
             swim(i);
 
         return removedData;
@@ -259,52 +260,70 @@ public class BinaryHeapOptimized<T extends Comparable<T>> {
         return isMinHeap(left) && isMinHeap(right);
     }
 
-    // Add a node value and its index to the map
-    private void mapAdd(T value, int index) {
-        TreeSet<Integer> set = map.get(value);
+    // Allocates an empty index with room for the given number of elements
+    private void allocateSlots(int elements) {
+        int capacity = MIN_SLOTS;
+        while (capacity < 2 * elements) capacity <<= 1;
+        slots = new int[capacity];
+        slotHashes = new int[capacity];
+        Arrays.fill(slots, EMPTY);
+        usedSlots = 0;
+    }
 
-        // New value being inserted in map
-        if (set == null) {
-            set = new TreeSet<>();
-            set.add(index);
-            map.put(value, set);
-        }
-        // Value alredy exists in map
-        else {
-            set.add(index);
-        }
+    // Returns the first slot to probe for a hash code
+    private int homeSlot(int hash) {
+        return (hash * FIBONACCI_MULTIPLIER) >>> Integer.numberOfLeadingZeros(slots.length - 1);
     }
 
-    // Removes the index at a given value, O(log(n))
-    private void mapRemove(T value, int index) {
-        TreeSet<Integer> set = map.get(value);
-        set.remove(index);          // TreeSets take O(log(n)) removal time
-        if (set.size() == 0) {
-            map.remove(value);
-        }
+    // Add the element at heap position index to the index, rebuilding the index first
+    // if it has run out of unused slots
+    private void indexAdd(int index) {
+        if (4 * (usedSlots + 1) > 3 * slots.length) rebuildIndex(index);
+
+        int hash = heap[index].hashCode();
+        int mask = slots.length - 1;
+        int slot = homeSlot(hash);
+        while (slots[slot] >= 0) slot = (slot + 1) & mask;
+
+        if (slots[slot] == EMPTY) usedSlots++;
+        slots[slot] = index;
+        slotHashes[slot] = hash;
+        slotOf[index] = slot;
     }
 
-    // Extract an index position for the given value
-    // NOTE: If a value exists multiple times in the heap the highest  index is returned
-    private Integer mapGet(T value) {
-        TreeSet<Integer> set = map.get(value);
-        if (set != null) {
-            return set.last();
+    // Returns the heap position of an element equal to value, or -1 if there is none
+    private int indexFind(T value) {
+        int hash = value.hashCode();
+        int mask = slots.length - 1;
+        for (int slot = homeSlot(hash); slots[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int index = slots[slot];
+            if (index >= 0 && slotHashes[slot] == hash && heap[index].equals(value))
+                return index;
         }
-        return null;
+        return -1;
     }
 
-    // Exchange the index of two nodes internally within the map
-    private void mapSwap(T value1, T value2, int value1Index, int value2Index) {
-        Set<Integer> set1 = map.get(value1);
-        Set<Integer> set2 = map.get(value2);
-
-        set1.add(value2Index);
-        set2.add(value1Index);
+    // Rebuilds the index without its deleted slots, sized for the elements at heap
+    // positions [0, elements) so that it is at most half full afterwards
+    private void rebuildIndex(int elements) {
+        int[] oldSlotHashes = slotHashes;
+        int[] hashes = new int[elements];
+        for (int i = 0; i < elements; i++) hashes[i] = oldSlotHashes[slotOf[i]];
+
+        allocateSlots(elements + 1);
+        int mask = slots.length - 1;
+        for (int i = 0; i < elements; i++) {
+            int slot = homeSlot(hashes[i]);
+            while (slots[slot] != EMPTY) slot = (slot + 1) & mask;
+            slots[slot] = i;
+            slotHashes[slot] = hashes[i];
+            slotOf[i] = slot;
+        }
+        usedSlots = elements;
     }
 
     @Override
     public String toString() {
-        return heap.toString();
+        return Arrays.toString(Arrays.copyOf(heap, heapSize));
     }
 }
@@ -0,0 +1,159 @@
+/*
+ * A thread-safe relaxed min priority queue built as a MultiQueue of binary heaps
+ *
+ * The queue is split into several BinaryHeaps, each guarded by its own lock. An add
+ * puts the element into a random heap, and a poll looks at the minimum of two random
+ * heaps and removes the smaller one. Threads only contend when they pick the same
+ * heap, and a heap whose lock is taken is simply skipped for another random one, so
+ * throughput keeps growing with the number of threads.
+ *
+ * In exchange the ordering is relaxed: poll returns an element close to the minimum,
+ * but not always the minimum itself. With a few heaps per thread the returned element
+ * is on average among the smallest few times the number of heaps. poll only returns
+ * null after it has found every heap empty.
+ */
+
+package com.bhavesh.DataStructures.PriorityQueue;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class ConcurrentMultiQueue<T extends Comparable<T>> {
+
+    private static final int DEFAULT_QUEUES_PER_THREAD = 2;
+
+    // A heap together with its lock. The minimum and the size are published in volatile
+    // fields so that other threads can choose between heaps without taking their locks
+    private static class Queue<T extends Comparable<T>> extends ReentrantLock {
+        private static final long serialVersionUID = 1L;
+
+        final BinaryHeap<T> heap = new BinaryHeap<>();
+        volatile T min;
+        volatile int size;
+
+        void publish() {
+            min = heap.peek();
+            size = heap.size();
+        }
+    }
+
+    private final Queue<T>[] queues;
+
+    // Uses DEFAULT_QUEUES_PER_THREAD heaps for every available processor
+    public ConcurrentMultiQueue() {
+        this(DEFAULT_QUEUES_PER_THREAD * Runtime.getRuntime().availableProcessors());
+    }
+
+    // Creates the queue with the given number of heaps, at least two.
+    // More heaps mean less contention but a more relaxed ordering
+    @SuppressWarnings("unchecked")
+    public ConcurrentMultiQueue(int queueCount) {
+        if (queueCount <= 0) throw new IllegalArgumentException("Invalid queue count");
+        queues = (Queue<T>[]) new Queue<?>[Math.max(2, queueCount)];
+        for (int i = 0; i < queues.length; i++) queues[i] = new Queue<>();
+    }
+
+    // Returns the number of heaps the elements are spread over
+    public int getQueueCount() {
+        return queues.length;
+    }
+
+    // Returns the number of elements, which may be out of date by the
+    // time it returns if other threads are modifying the queue
+    public int size() {
+        int size = 0;
+        for (Queue<T> queue : queues) size += queue.size;
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // Add an element to a random heap, the element must not be null
+    public void add(T element) {
+        if (element == null) throw new IllegalArgumentException();
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (true) {
+            Queue<T> queue = queues[random.nextInt(queues.length)];
+            if (!queue.tryLock()) continue;
+            try {
+                queue.heap.add(element);
+                queue.publish();
+                return;
+            } finally {
+                queue.unlock();
+            }
+        }
+    }
+
+    // Removes an element close to the minimum, the smaller of the minimums of two random
+    // heaps. Returns null if the queue is empty
+    public T poll() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        // Give up on random picks once they keep finding empty heaps
+        for (int misses = 0; misses < queues.length; ) {
+            Queue<T> queue = queues[random.nextInt(queues.length)];
+            Queue<T> other = queues[random.nextInt(queues.length)];
+            T min = queue.min, otherMin = other.min;
+            if (min == null || (otherMin != null && otherMin.compareTo(min) < 0)) {
+                queue = other;
+                min = otherMin;
+            }
+            if (min == null) {
+                misses++;
+                continue;
+            }
+
+            if (!queue.tryLock()) continue;
+            try {
+                T element = queue.heap.poll();
+                queue.publish();
+                if (element != null) return element;
+            } finally {
+                queue.unlock();
+            }
+            misses++;
+        }
+
+        // Check every heap in turn before reporting the queue as empty
+        for (Queue<T> queue : queues) {
+            if (queue.min == null) continue;
+            queue.lock();
+            try {
+                T element = queue.heap.poll();
+                queue.publish();
+                if (element != null) return element;
+            } finally {
+                queue.unlock();
+            }
+        }
+        return null;
+    }
+
+    // Returns the smallest of the heap minimums without removing it, or null if the queue
+    // is empty. Other threads may remove the element before the caller gets to it
+    public T peek() {
+        T min = null;
+        for (Queue<T> queue : queues) {
+            T queueMin = queue.min;
+            if (queueMin != null && (min == null || queueMin.compareTo(min) < 0)) min = queueMin;
+        }
+        return min;
+    }
+
+    // Removes every element. Elements added concurrently may survive
+    public void clear() {
+        for (Queue<T> queue : queues) {
+            queue.lock();
+            try {
+                queue.heap.clear();
+                queue.publish();
+            } finally {
+                queue.unlock();
+            }
+        }
+    }
+}
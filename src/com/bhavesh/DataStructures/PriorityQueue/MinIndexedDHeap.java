@@ -8,7 +8,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.NoSuchElementException;
 
-public class MinIndexedDHeap<T extends Comparable<T>> {
+public class MinIndexedDHeap<T extends Comparable<T>> implements MinIndexedPriorityQueue<T> {
 
     // Current number of elements in the heap
     private int sz;
@@ -116,7 +116,7 @@ public class MinIndexedDHeap<T extends Comparable<T>> {
         T value = (T) values[ki];
         values[ki] = null;
         pm[ki] = -1;
-        im[ki] = -1;
+        im[sz] = -1;
         return value;
     }
 
@@ -0,0 +1,229 @@
+/*
+ * An implementation of an indexed min D-ary heap priority queue with primitive long values
+ *
+ * It has the same API as MinIndexedDHeap, but the values are stored in a long array
+ * instead of as objects, so inserting or decreasing a value (every relaxation of Dijkstra's
+ * algorithm with integer weights) neither boxes a Long nor calls compareTo. The values are
+ * kept in heap order next to the inverse map, so comparing two nodes reads two adjacent
+ * array slots instead of following the key indexes, and sink/swim move a hole down or up
+ * the heap rather than swapping at every level.
+ */
+
+package com.bhavesh.DataStructures.PriorityQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class MinIndexedLongDHeap implements MinIndexedLongPriorityQueue {
+
+    // Current number of elements in the heap
+    private int sz;
+
+    // Maximum number of elements in the heap
+    private final int N;
+
+    // The degree of each node in the heap
+    private final int D;
+
+    // The Position Map (pm) maps Key Indexes (ki) to where the position of that
+    // key is represented in the priority queue in the domain [0, sz)
+    public final int[] pm;
+
+    // The Inverse Map (im) stores the indexes of the keys in the range
+    // [0, sz) which make up the priority queue. It should be noted that
+    // 'im' and 'pm' are inverses of each other, pm[im[i]] = im[pm[i]] = i
+    public final int[] im;
+
+    // The values of the keys in heap order, heap[i] is the value of key im[i]
+    private final long[] heap;
+
+
+    public MinIndexedLongDHeap(int degree, int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize <= 0");
+
+        D = Math.max(2, degree);
+        N = Math.max(D + 1, maxSize);
+
+        im = new int[N];
+        pm = new int[N];
+        heap = new long[N];
+
+        for (int i = 0; i < N; i++) pm[i] = im[i] = -1;
+    }
+
+    public int size() {
+        return sz;
+    }
+
+    public boolean isEmpty() {
+        return sz == 0;
+    }
+
+    public boolean contains(int ki) {
+        keyInBoundsOrThrow(ki);
+        return pm[ki] != -1;
+    }
+
+    public int peekMinKeyIndex() {
+        isNotEmptyOrThrow();
+        return im[0];
+    }
+
+    public int pollMinKeyIndex() {
+        int minki = peekMinKeyIndex();
+        delete(minki);
+        return minki;
+    }
+
+    public long peekMinValue() {
+        isNotEmptyOrThrow();
+        return heap[0];
+    }
+
+    public long pollMinValue() {
+        long minValue = peekMinValue();
+        delete(peekMinKeyIndex());
+        return minValue;
+    }
+
+    public void insert(int ki, long value) {
+        if (contains(ki)) throw new IllegalArgumentException("Index already exists" + ki);
+        swim(sz++, ki, value);
+    }
+
+    public long valueOf(int ki) {
+        keyExistsOrThrow(ki);
+        return heap[pm[ki]];
+    }
+
+    public long delete(int ki) {
+        keyExistsOrThrow(ki);
+        final int i = pm[ki];
+        final long value = heap[i];
+
+        // Move the last node into the freed position, it can only need to go one way
+        final int lastki = im[--sz];
+        final long last = heap[sz];
+        im[sz] = -1;
+        pm[ki] = -1;
+        if (i != sz) {
+            if (i > 0 && last < heap[(i - 1) / D]) swim(i, lastki, last);
+            else sink(i, lastki, last);
+        }
+        return value;
+    }
+
+    public long update(int ki, long value) {
+        keyExistsOrThrow(ki);
+        final int i = pm[ki];
+        final long oldValue = heap[i];
+        if (value < oldValue) swim(i, ki, value);
+        else sink(i, ki, value);
+        return oldValue;
+    }
+
+    // Strictly decreases the value associated with 'ki' to 'value'
+    public void decrease(int ki, long value) {
+        keyExistsOrThrow(ki);
+        final int i = pm[ki];
+        if (value < heap[i]) swim(i, ki, value);
+    }
+
+    // Strictly increases the value associated with 'ki' to 'value'
+    public void increase(int ki, long value) {
+        keyExistsOrThrow(ki);
+        final int i = pm[ki];
+        if (heap[i] < value) sink(i, ki, value);
+    }
+
+    /* Helper functions */
+
+    // Places key ki with the given value at position i or below it, moving smaller
+    // children up into the hole until the value is no larger than its children
+    private void sink(int i, int ki, long value) {
+        while (true) {
+            int from = i * D + 1;
+            if (from >= sz) break;
+
+            // Find the minimum child below position i
+            int j = from, to = Math.min(sz, from + D);
+            long min = heap[from];
+            for (int c = from + 1; c < to; c++) {
+                if (heap[c] < min) {
+                    min = heap[c];
+                    j = c;
+                }
+            }
+            if (min >= value) break;
+
+            move(j, i);
+            i = j;
+        }
+        place(i, ki, value);
+    }
+
+    // Places key ki with the given value at position i or above it, moving larger
+    // parents down into the hole until the value is no smaller than its parent
+    private void swim(int i, int ki, long value) {
+        while (i > 0) {
+            int p = (i - 1) / D;
+            if (value >= heap[p]) break;
+            move(p, i);
+            i = p;
+        }
+        place(i, ki, value);
+    }
+
+    // Moves the node at position from to position to
+    private void move(int from, int to) {
+        heap[to] = heap[from];
+        im[to] = im[from];
+        pm[im[to]] = to;
+    }
+
+    private void place(int i, int ki, long value) {
+        heap[i] = value;
+        im[i] = ki;
+        pm[ki] = i;
+    }
+
+    @Override
+    public String toString() {
+        List<Integer> lst = new ArrayList<>(sz);
+        for (int i = 0; i < sz; i++) lst.add(im[i]);
+        return lst.toString();
+    }
+
+    /* Helper functions to make the code more readable. */
+
+    private void isNotEmptyOrThrow() {
+        if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
+    }
+
+    private void keyExistsOrThrow(int ki) {
+        if (!contains(ki)) throw new NoSuchElementException("Index does not exist; received: " + ki);
+    }
+
+    private void keyInBoundsOrThrow(int ki) {
+        if (ki < 0 || ki >= N)
+            throw new IllegalArgumentException("Key index out of bounds; received: " + ki);
+    }
+
+    /* Test functions */
+
+    // Recursively checks if this heap is a min heap. This method is used
+    // for testing purposes to validate the heap invariant.
+    public boolean isMinHeap() {
+        return isMinHeap(0);
+    }
+
+    private boolean isMinHeap(int i) {
+        int from = i * D + 1, to = Math.min(sz, from + D);
+        for (int j = from; j < to; j++) {
+            if (heap[j] < heap[i]) return false;
+            if (!isMinHeap(j)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * The operations shared by the indexed min priority queues of primitive long values, so
+ * that graph algorithms can switch between the D-ary heap and the radix heap
+ *
+ * Keys are the indexes [0, maxSize) given to the constructor and every key holds at most
+ * one value.
+ */
+
+package com.bhavesh.DataStructures.PriorityQueue;
+
+public interface MinIndexedLongPriorityQueue {
+
+    public int size();
+
+    public boolean isEmpty();
+
+    public boolean contains(int ki);
+
+    public int peekMinKeyIndex();
+
+    public int pollMinKeyIndex();
+
+    public long peekMinValue();
+
+    public long pollMinValue();
+
+    public void insert(int ki, long value);
+
+    public long valueOf(int ki);
+
+    public long delete(int ki);
+
+    public long update(int ki, long value);
+
+    // Strictly decreases the value associated with 'ki' to 'value'
+    public void decrease(int ki, long value);
+
+    // Strictly increases the value associated with 'ki' to 'value'
+    public void increase(int ki, long value);
+}
@@ -0,0 +1,290 @@
+/*
+ * An implementation of an indexed min pairing heap priority queue
+ *
+ * The heap is a single tree whose root holds the minimum. Every node keeps a list of its
+ * children, and two trees are melded by making the root with the larger value the first
+ * child of the other. Inserting and decreasing a value are O(1): decreasing cuts the node
+ * with its subtree out of the tree and melds it with the root. Removing the minimum melds
+ * the children of the root in pairs from left to right and then melds the pairs from
+ * right to left, which is O(log(n)) amortized.
+ *
+ * The nodes are the key indexes themselves, so the tree is stored in int arrays indexed
+ * by key index and no node objects are allocated.
+ */
+
+package com.bhavesh.DataStructures.PriorityQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class MinIndexedPairingHeap<T extends Comparable<T>> implements MinIndexedPriorityQueue<T> {
+
+    // Current number of elements in the heap
+    private int sz;
+
+    // Maximum number of elements in the heap
+    private final int N;
+
+    // The key index at the root of the tree, -1 if the heap is empty
+    private int root = -1;
+
+    // The first child and the next sibling of each key, -1 if there is none
+    private final int[] child, next;
+
+    // The previous sibling of each key, or its parent if it is the first child,
+    // -1 for the root and for keys which are not in the heap
+    private final int[] prev;
+
+    // The values associated with the keys. This array is indexed by the
+    // key indexes (ki), a key is in the heap if its value is not null
+    private final Object[] values;
+
+
+    public MinIndexedPairingHeap(int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize <= 0");
+
+        N = maxSize;
+        child = new int[N];
+        next = new int[N];
+        prev = new int[N];
+        values = new Object[N];
+
+        for (int i = 0; i < N; i++) child[i] = next[i] = prev[i] = -1;
+    }
+
+    public int size() {
+        return sz;
+    }
+
+    public boolean isEmpty() {
+        return sz == 0;
+    }
+
+    public boolean contains(int ki) {
+        keyInBoundsOrThrow(ki);
+        return values[ki] != null;
+    }
+
+    public int peekMinKeyIndex() {
+        isNotEmptyOrThrow();
+        return root;
+    }
+
+    public int pollMinKeyIndex() {
+        int minki = peekMinKeyIndex();
+        delete(minki);
+        return minki;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T peekMinValue() {
+        isNotEmptyOrThrow();
+        return (T) values[root];
+    }
+
+    public T pollMinValue() {
+        T minValue = peekMinValue();
+        delete(peekMinKeyIndex());
+        return minValue;
+    }
+
+    public void insert(int ki, T value) {
+        if (contains(ki)) throw new IllegalArgumentException("Index already exists" + ki);
+        valueNotNullOrThrow(value);
+        values[ki] = value;
+        root = meld(root, ki);
+        sz++;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T valueOf(int ki) {
+        keyExistsOrThrow(ki);
+        return (T) values[ki];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T delete(int ki) {
+        keyExistsOrThrow(ki);
+
+        // The children of the key take its place
+        int subtree = mergePairs(child[ki]);
+        child[ki] = -1;
+        if (ki == root) {
+            root = subtree;
+        } else {
+            cut(ki);
+            root = meld(root, subtree);
+        }
+
+        T value = (T) values[ki];
+        values[ki] = null;
+        sz--;
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T update(int ki, T value) {
+        keyExistsAndValueNotNullOrThrow(ki, value);
+        T oldValue = (T) values[ki];
+        if (less(value, oldValue)) decrease(ki, value);
+        else if (less(oldValue, value)) increase(ki, value);
+        else values[ki] = value;
+        return oldValue;
+    }
+
+    // Strictly decreases the value associated with 'ki' to 'value'
+    public void decrease(int ki, T value) {
+        keyExistsAndValueNotNullOrThrow(ki, value);
+        if (less(value, values[ki])) {
+            values[ki] = value;
+
+            // The subtree of the key stays a valid heap, only its link to
+            // the parent may now be out of order
+            if (ki != root) {
+                cut(ki);
+                root = meld(root, ki);
+            }
+        }
+    }
+
+    // Strictly increases the value associated with 'ki' to 'value'
+    public void increase(int ki, T value) {
+        keyExistsAndValueNotNullOrThrow(ki, value);
+        if (less(values[ki], value)) {
+            delete(ki);
+            insert(ki, value);
+        }
+    }
+
+    /* Helper functions */
+
+    // Melds two trees given by their roots and returns the root of the result. Both
+    // roots must have no siblings, the root of the result has none either
+    private int meld(int a, int b) {
+        if (a == -1) return b;
+        if (b == -1) return a;
+        if (less(values[b], values[a])) {
+            int tmp = a;
+            a = b;
+            b = tmp;
+        }
+
+        // Make b the first child of a
+        next[b] = child[a];
+        if (child[a] != -1) prev[child[a]] = b;
+        prev[b] = a;
+        child[a] = b;
+        return a;
+    }
+
+    // Cuts the subtree of a key which is not the root out of the tree
+    private void cut(int ki) {
+        final int p = prev[ki];
+        if (child[p] == ki) child[p] = next[ki];
+        else next[p] = next[ki];
+        if (next[ki] != -1) prev[next[ki]] = p;
+        next[ki] = prev[ki] = -1;
+    }
+
+    // Melds a list of siblings starting at first into a single tree and returns its root.
+    // The first pass melds pairs from left to right, collecting the results in reverse
+    // order through next, and the second pass melds those from right to left
+    private int mergePairs(int first) {
+        if (first == -1) return -1;
+
+        int pairs = -1;
+        for (int a = first; a != -1; ) {
+            int b = next[a];
+            int rest = b == -1 ? -1 : next[b];
+            next[a] = prev[a] = -1;
+            if (b != -1) next[b] = prev[b] = -1;
+
+            int melded = meld(a, b);
+            next[melded] = pairs;
+            pairs = melded;
+            a = rest;
+        }
+
+        int result = pairs;
+        pairs = next[result];
+        next[result] = -1;
+        while (pairs != -1) {
+            int tree = pairs;
+            pairs = next[tree];
+            next[tree] = -1;
+            result = meld(result, tree);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean less(Object obj1, Object obj2) {
+        return ((Comparable<? super T>) obj1).compareTo((T) obj2) < 0;
+    }
+
+    // Lists the key indexes of the tree in preorder
+    @Override
+    public String toString() {
+        List<Integer> lst = new ArrayList<>(sz);
+        int[] stack = new int[sz];
+        int top = 0;
+        if (root != -1) stack[top++] = root;
+
+        // The tree can be as deep as the heap is large, so walk it with an explicit stack
+        while (top > 0) {
+            int ki = stack[--top];
+            lst.add(ki);
+            if (next[ki] != -1 && ki != root) stack[top++] = next[ki];
+            if (child[ki] != -1) stack[top++] = child[ki];
+        }
+        return lst.toString();
+    }
+
+    /* Helper functions to make the code more readable. */
+
+    private void isNotEmptyOrThrow() {
+        if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
+    }
+
+    private void keyExistsAndValueNotNullOrThrow(int ki, Object value) {
+        keyExistsOrThrow(ki);
+        valueNotNullOrThrow(value);
+    }
+
+    private void keyExistsOrThrow(int ki) {
+        if (!contains(ki)) throw new NoSuchElementException("Index does not exist; received: " + ki);
+    }
+
+    private void valueNotNullOrThrow(Object value) {
+        if (value == null) throw new IllegalArgumentException("value cannot be null");
+    }
+
+    private void keyInBoundsOrThrow(int ki) {
+        if (ki < 0 || ki >= N)
+            throw new IllegalArgumentException("Key index out of bounds; received: " + ki);
+    }
+
+    /* Test functions */
+
+    // Checks that no child is smaller than its parent and that the tree holds every
+    // key of the heap. This method is used for testing purposes to validate the heap
+    // invariant.
+    public boolean isMinHeap() {
+        if (root == -1) return sz == 0;
+
+        int count = 0;
+        int[] stack = new int[sz];
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int ki = stack[--top];
+            if (++count > sz) return false;
+            for (int c = child[ki]; c != -1; c = next[c]) {
+                if (less(values[c], values[ki]) || prev[c] == -1) return false;
+                stack[top++] = c;
+            }
+        }
+        return count == sz;
+    }
+}
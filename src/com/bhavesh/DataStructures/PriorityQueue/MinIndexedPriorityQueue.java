@@ -0,0 +1,40 @@
+/*
+ * The operations shared by the indexed min priority queues, so that graph algorithms
+ * can switch between the D-ary heap and the pairing heap
+ *
+ * Keys are the indexes [0, maxSize) given to the constructor and every key holds at most
+ * one value. See MinIndexedLongPriorityQueue for queues of primitive long values.
+ */
+
+package com.bhavesh.DataStructures.PriorityQueue;
+
+public interface MinIndexedPriorityQueue<T extends Comparable<T>> {
+
+    public int size();
+
+    public boolean isEmpty();
+
+    public boolean contains(int ki);
+
+    public int peekMinKeyIndex();
+
+    public int pollMinKeyIndex();
+
+    public T peekMinValue();
+
+    public T pollMinValue();
+
+    public void insert(int ki, T value);
+
+    public T valueOf(int ki);
+
+    public T delete(int ki);
+
+    public T update(int ki, T value);
+
+    // Strictly decreases the value associated with 'ki' to 'value'
+    public void decrease(int ki, T value);
+
+    // Strictly increases the value associated with 'ki' to 'value'
+    public void increase(int ki, T value);
+}
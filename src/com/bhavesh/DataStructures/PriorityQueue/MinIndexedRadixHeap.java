@@ -0,0 +1,239 @@
+/*
+ * An implementation of an indexed monotone radix heap priority queue with long values
+ *
+ * A radix heap only works for monotone workloads such as Dijkstra's algorithm with
+ * non-negative integer weights: no value may be smaller than the last minimum the heap
+ * handed out. Keys are kept in 65 buckets by the highest bit in which their value differs
+ * from that last minimum, bucket 0 holding the values equal to it. When bucket 0 runs
+ * empty the lowest non-empty bucket is scanned for its minimum, which becomes the new
+ * last minimum, and its keys are spread over the lower buckets. A key moves to a lower
+ * bucket at most 64 times, so operations are O(1) amortized plus O(64) per removal.
+ *
+ * The buckets are doubly linked lists threaded through arrays indexed by key index, so
+ * decreasing, increasing or deleting a key unlinks it in O(1).
+ */
+
+package com.bhavesh.DataStructures.PriorityQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class MinIndexedRadixHeap implements MinIndexedLongPriorityQueue {
+
+    // Values differing from the last minimum in bit b go into bucket b + 1
+    private static final int BUCKETS = Long.SIZE + 1;
+
+    // Current number of elements in the heap
+    private int sz;
+
+    // Maximum number of elements in the heap
+    private final int N;
+
+    // The last minimum handed out by the heap, a lower bound for every value
+    private long last = Long.MIN_VALUE;
+
+    // The first key of each bucket, -1 if the bucket is empty
+    private final int[] head = new int[BUCKETS];
+
+    // The bucket of each key (-1 if the key is not in the heap) and
+    // the next and previous key in the same bucket (-1 if there is none)
+    private final int[] bucketOf, next, prev;
+
+    // The values associated with the keys. This array is indexed by the key indexes (ki)
+    private final long[] values;
+
+
+    public MinIndexedRadixHeap(int maxSize) {
+        if (maxSize <= 0) throw new IllegalArgumentException("maxSize <= 0");
+
+        N = maxSize;
+        bucketOf = new int[N];
+        next = new int[N];
+        prev = new int[N];
+        values = new long[N];
+
+        for (int i = 0; i < N; i++) bucketOf[i] = -1;
+        for (int b = 0; b < BUCKETS; b++) head[b] = -1;
+    }
+
+    public int size() {
+        return sz;
+    }
+
+    public boolean isEmpty() {
+        return sz == 0;
+    }
+
+    public boolean contains(int ki) {
+        keyInBoundsOrThrow(ki);
+        return bucketOf[ki] != -1;
+    }
+
+    // Returns a key with the minimum value. The minimum becomes the lower bound
+    // for all values inserted or changed afterwards
+    public int peekMinKeyIndex() {
+        isNotEmptyOrThrow();
+        if (head[0] == -1) redistribute();
+        return head[0];
+    }
+
+    public int pollMinKeyIndex() {
+        int minki = peekMinKeyIndex();
+        delete(minki);
+        return minki;
+    }
+
+    public long peekMinValue() {
+        return values[peekMinKeyIndex()];
+    }
+
+    public long pollMinValue() {
+        long minValue = peekMinValue();
+        delete(peekMinKeyIndex());
+        return minValue;
+    }
+
+    public void insert(int ki, long value) {
+        if (contains(ki)) throw new IllegalArgumentException("Index already exists" + ki);
+        valueMonotoneOrThrow(value);
+        values[ki] = value;
+        link(ki, bucket(value));
+        sz++;
+    }
+
+    public long valueOf(int ki) {
+        keyExistsOrThrow(ki);
+        return values[ki];
+    }
+
+    public long delete(int ki) {
+        keyExistsOrThrow(ki);
+        unlink(ki);
+        bucketOf[ki] = -1;
+        sz--;
+        return values[ki];
+    }
+
+    public long update(int ki, long value) {
+        keyExistsAndValueMonotoneOrThrow(ki, value);
+        long oldValue = values[ki];
+        move(ki, value);
+        return oldValue;
+    }
+
+    // Strictly decreases the value associated with 'ki' to 'value'
+    public void decrease(int ki, long value) {
+        keyExistsAndValueMonotoneOrThrow(ki, value);
+        if (value < values[ki]) move(ki, value);
+    }
+
+    // Strictly increases the value associated with 'ki' to 'value'
+    public void increase(int ki, long value) {
+        keyExistsAndValueMonotoneOrThrow(ki, value);
+        if (values[ki] < value) move(ki, value);
+    }
+
+    /* Helper functions */
+
+    // Returns the bucket of a value. Flipping the sign bit of two longs keeps their order
+    // as unsigned numbers and leaves their xor unchanged, so the bucket order follows the
+    // value order for negative values as well
+    private int bucket(long value) {
+        return value == last ? 0 : Long.SIZE - Long.numberOfLeadingZeros(value ^ last);
+    }
+
+    // Changes the value of a key in the heap and moves it to the bucket of the new value
+    private void move(int ki, long value) {
+        values[ki] = value;
+        int b = bucket(value);
+        if (b != bucketOf[ki]) {
+            unlink(ki);
+            link(ki, b);
+        }
+    }
+
+    // Makes the minimum of the lowest non-empty bucket the last minimum and spreads
+    // that bucket over the lower buckets, at least the minimum lands in bucket 0
+    private void redistribute() {
+        int b = 1;
+        while (head[b] == -1) b++;
+
+        long min = Long.MAX_VALUE;
+        for (int ki = head[b]; ki != -1; ki = next[ki]) min = Math.min(min, values[ki]);
+        last = min;
+
+        int ki = head[b];
+        head[b] = -1;
+        while (ki != -1) {
+            int nextki = next[ki];
+            link(ki, bucket(values[ki]));
+            ki = nextki;
+        }
+    }
+
+    private void link(int ki, int b) {
+        bucketOf[ki] = b;
+        prev[ki] = -1;
+        next[ki] = head[b];
+        if (head[b] != -1) prev[head[b]] = ki;
+        head[b] = ki;
+    }
+
+    private void unlink(int ki) {
+        if (prev[ki] != -1) next[prev[ki]] = next[ki];
+        else head[bucketOf[ki]] = next[ki];
+        if (next[ki] != -1) prev[next[ki]] = prev[ki];
+    }
+
+    // Lists the key indexes bucket by bucket
+    @Override
+    public String toString() {
+        List<Integer> lst = new ArrayList<>(sz);
+        for (int b = 0; b < BUCKETS; b++) {
+            for (int ki = head[b]; ki != -1; ki = next[ki]) lst.add(ki);
+        }
+        return lst.toString();
+    }
+
+    /* Helper functions to make the code more readable. */
+
+    private void isNotEmptyOrThrow() {
+        if (isEmpty()) throw new NoSuchElementException("Priority queue underflow");
+    }
+
+    private void keyExistsAndValueMonotoneOrThrow(int ki, long value) {
+        keyExistsOrThrow(ki);
+        valueMonotoneOrThrow(value);
+    }
+
+    private void keyExistsOrThrow(int ki) {
+        if (!contains(ki)) throw new NoSuchElementException("Index does not exist; received: " + ki);
+    }
+
+    private void valueMonotoneOrThrow(long value) {
+        if (value < last)
+            throw new IllegalArgumentException("value is smaller than the last minimum " + last + "; received: " + value);
+    }
+
+    private void keyInBoundsOrThrow(int ki) {
+        if (ki < 0 || ki >= N)
+            throw new IllegalArgumentException("Key index out of bounds; received: " + ki);
+    }
+
+    /* Test functions */
+
+    // Checks that every key sits in the bucket of its value and that the buckets hold
+    // every key of the heap. This method is used for testing purposes to validate the
+    // heap invariant.
+    public boolean isMinHeap() {
+        int count = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            for (int ki = head[b]; ki != -1; ki = next[ki]) {
+                if (bucketOf[ki] != b || bucket(values[ki]) != b || values[ki] < last) return false;
+                if (++count > sz) return false;
+            }
+        }
+        return count == sz;
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * A simple benchmark running Dijkstra's algorithm on a random graph with the indexed
+ * D-ary heap and the pairing heap holding boxed Double distances, with the primitive
+ * double heap, and with integer weights on the primitive long D-ary heap and the radix heap,
+ * comparing the throughput of a synchronized BinaryHeap with ConcurrentMultiQueue for a
+ * growing number of threads, and comparing the batch operations of BinaryHeap with
+ * adding and polling one element at a time
+ *
+ * Numbers from a main method are only a rough guide, every measurement is repeated
+ * a few times so that the JIT compiler has warmed up before the last round.
+ */
+
+package com.bhavesh.DataStructures.PriorityQueue;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
+
+public class PriorityQueueBenchmark {
+
+    private static final int NODE_COUNT = 200_000;
+    private static final int EDGES_PER_NODE = 8;
+    private static final int DEGREE = 4;
+    private static final int ROUNDS = 5;
+
+    // Parameters of the concurrent comparison, every thread runs CONCURRENT_OPERATIONS
+    // alternating adds and polls on a queue holding CONCURRENT_ELEMENTS elements
+    private static final int CONCURRENT_ELEMENTS = 1 << 16;
+    private static final int CONCURRENT_OPERATIONS = 2_000_000;
+    private static final int[] THREAD_COUNTS = {1, 2, 4, 8};
+
+    // Parameters of the batch comparison, batches are added to and polled
+    // from a heap which holds BATCH_HEAP_SIZE elements at the start
+    private static final int BATCH_HEAP_SIZE = 1 << 20;
+    private static final int BATCH_ADD_SIZE = 1 << 18;
+    private static final int BATCH_POLL_SIZE = 1 << 14;
+
+    // A random directed graph in adjacency array form, the edges of node
+    // u are to[start[u]] to to[start[u + 1] - 1] with the given weights
+    static int[] start, to;
+    static double[] weight;
+    static long[] intWeight;
+
+    static void createGraph() {
+        Random random = new Random(7);
+        start = new int[NODE_COUNT + 1];
+        to = new int[NODE_COUNT * EDGES_PER_NODE];
+        weight = new double[NODE_COUNT * EDGES_PER_NODE];
+        intWeight = new long[NODE_COUNT * EDGES_PER_NODE];
+        for (int u = 0; u < NODE_COUNT; u++) {
+            start[u + 1] = start[u] + EDGES_PER_NODE;
+            for (int e = start[u]; e < start[u + 1]; e++) {
+                to[e] = random.nextInt(NODE_COUNT);
+                weight[e] = random.nextDouble();
+                intWeight[e] = random.nextInt(1000);
+            }
+        }
+    }
+
+    // Returns the sum of the shortest distances from node 0
+    static double dijkstraBoxed(MinIndexedPriorityQueue<Double> pq) {
+        double[] dist = new double[NODE_COUNT];
+        boolean[] visited = new boolean[NODE_COUNT];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+
+        dist[0] = 0;
+        pq.insert(0, 0.0);
+        double sum = 0;
+        while (!pq.isEmpty()) {
+            double d = pq.peekMinValue();
+            int u = pq.pollMinKeyIndex();
+            visited[u] = true;
+            sum += d;
+            for (int e = start[u]; e < start[u + 1]; e++) {
+                int v = to[e];
+                double newDist = d + weight[e];
+                if (visited[v] || newDist >= dist[v]) continue;
+                dist[v] = newDist;
+                if (pq.contains(v)) pq.decrease(v, newDist);
+                else pq.insert(v, newDist);
+            }
+        }
+        return sum;
+    }
+
+    static double dijkstraPrimitive() {
+        double[] dist = new double[NODE_COUNT];
+        boolean[] visited = new boolean[NODE_COUNT];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+
+        MinIndexedDoubleDHeap pq = new MinIndexedDoubleDHeap(DEGREE, NODE_COUNT);
+        dist[0] = 0;
+        pq.insert(0, 0.0);
+        double sum = 0;
+        while (!pq.isEmpty()) {
+            double d = pq.peekMinValue();
+            int u = pq.pollMinKeyIndex();
+            visited[u] = true;
+            sum += d;
+            for (int e = start[u]; e < start[u + 1]; e++) {
+                int v = to[e];
+                double newDist = d + weight[e];
+                if (visited[v] || newDist >= dist[v]) continue;
+                dist[v] = newDist;
+                if (pq.contains(v)) pq.decrease(v, newDist);
+                else pq.insert(v, newDist);
+            }
+        }
+        return sum;
+    }
+
+    // Returns the sum of the shortest distances from node 0 with the integer weights
+    static double dijkstraLong(MinIndexedLongPriorityQueue pq) {
+        long[] dist = new long[NODE_COUNT];
+        boolean[] visited = new boolean[NODE_COUNT];
+        Arrays.fill(dist, Long.MAX_VALUE);
+
+        dist[0] = 0;
+        pq.insert(0, 0);
+        long sum = 0;
+        while (!pq.isEmpty()) {
+            long d = pq.peekMinValue();
+            int u = pq.pollMinKeyIndex();
+            visited[u] = true;
+            sum += d;
+            for (int e = start[u]; e < start[u + 1]; e++) {
+                int v = to[e];
+                long newDist = d + intWeight[e];
+                if (visited[v] || newDist >= dist[v]) continue;
+                dist[v] = newDist;
+                if (pq.contains(v)) pq.decrease(v, newDist);
+                else pq.insert(v, newDist);
+            }
+        }
+        return sum;
+    }
+
+    interface Run {
+        double run();
+    }
+
+    // Returns the time in milliseconds of the last of ROUNDS runs
+    static double time(Run run, double expected) {
+        double millis = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long startTime = System.nanoTime();
+            double result = run.run();
+            millis = (System.nanoTime() - startTime) / 1e6;
+            if (result != expected) throw new IllegalStateException("Heaps disagree");
+        }
+        return millis;
+    }
+
+    // Returns the throughput in millions of operations per second of the given number of
+    // threads, each running CONCURRENT_OPERATIONS alternating adds and polls
+    static double timeConcurrent(Runnable add, Runnable poll, int threads) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < CONCURRENT_OPERATIONS; i += 2) {
+                    add.run();
+                    poll.run();
+                }
+            });
+        }
+
+        long startTime = System.nanoTime();
+        for (Thread worker : workers) worker.start();
+        for (Thread worker : workers) worker.join();
+        return (double) threads * CONCURRENT_OPERATIONS * 1e3 / (System.nanoTime() - startTime);
+    }
+
+    static void concurrentBenchmark() throws InterruptedException {
+        System.out.printf("Alternating adds and polls on %d available processors%n",
+                Runtime.getRuntime().availableProcessors());
+
+        for (int threads : THREAD_COUNTS) {
+            BinaryHeap<Integer> heap = new BinaryHeap<>();
+            ConcurrentMultiQueue<Integer> multiQueue = new ConcurrentMultiQueue<>(2 * threads);
+            for (int i = 0; i < CONCURRENT_ELEMENTS; i++) {
+                heap.add(i);
+                multiQueue.add(i);
+            }
+
+            double synchronizedThroughput = 0, multiQueueThroughput = 0;
+            for (int round = 0; round < 2; round++) {
+                synchronizedThroughput = timeConcurrent(() -> {
+                    int element = ThreadLocalRandom.current().nextInt(CONCURRENT_ELEMENTS);
+                    synchronized (heap) {
+                        heap.add(element);
+                    }
+                }, () -> {
+                    synchronized (heap) {
+                        heap.poll();
+                    }
+                }, threads);
+
+                multiQueueThroughput = timeConcurrent(
+                        () -> multiQueue.add(ThreadLocalRandom.current().nextInt(CONCURRENT_ELEMENTS)),
+                        multiQueue::poll, threads);
+            }
+            System.out.printf("%d threads   synchronized BinaryHeap: %6.1f Mops/s   ConcurrentMultiQueue: %6.1f Mops/s%n",
+                    threads, synchronizedThroughput, multiQueueThroughput);
+        }
+
+        // The i-th poll of a strict queue holding 0 to n - 1 returns i, so the
+        // distance to i shows how relaxed the order of the multi queue is
+        for (int queueCount : new int[]{4, 16}) {
+            ConcurrentMultiQueue<Integer> multiQueue = new ConcurrentMultiQueue<>(queueCount);
+            for (int i = 0; i < CONCURRENT_ELEMENTS; i++) multiQueue.add(i);
+            long rankError = 0;
+            for (int i = 0; i < CONCURRENT_ELEMENTS; i++) rankError += Math.abs(multiQueue.poll() - i);
+            System.out.printf("%d heaps: average rank error %.1f%n", queueCount, (double) rankError / CONCURRENT_ELEMENTS);
+        }
+    }
+
+    // Returns the time in milliseconds of the last of ROUNDS runs of an operation on
+    // a fresh heap holding the given elements
+    static double timeBatch(Integer[] elements, Consumer<BinaryHeap<Integer>> operation) {
+        double millis = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            BinaryHeap<Integer> heap = new BinaryHeap<>(elements);
+            long startTime = System.nanoTime();
+            operation.accept(heap);
+            millis = (System.nanoTime() - startTime) / 1e6;
+        }
+        return millis;
+    }
+
+    static void batchBenchmark() {
+        Random random = new Random(7);
+        Integer[] elements = new Integer[BATCH_HEAP_SIZE];
+        for (int i = 0; i < elements.length; i++) elements[i] = random.nextInt();
+
+        // A batch of urgent jobs, each more urgent than everything before it,
+        // makes every single add swim all the way to the root
+        Integer[] batch = new Integer[BATCH_ADD_SIZE];
+        for (int i = 0; i < batch.length; i++) batch[i] = Integer.MIN_VALUE + batch.length - i;
+
+        System.out.printf("Batches on a binary heap of %d elements%n", BATCH_HEAP_SIZE);
+        System.out.printf("add x%d:    %7.1f ms%n", BATCH_ADD_SIZE, timeBatch(elements, heap -> {
+            for (Integer element : batch) heap.add(element);
+        }));
+        System.out.printf("addAll(%d): %7.1f ms%n", BATCH_ADD_SIZE, timeBatch(elements, heap -> heap.addAll(batch)));
+
+        Integer[] results = new Integer[BATCH_POLL_SIZE];
+        System.out.printf("poll x%d:    %7.1f ms%n", BATCH_POLL_SIZE, timeBatch(elements, heap -> {
+            for (int i = 0; i < BATCH_POLL_SIZE; i++) results[i] = heap.poll();
+        }));
+        System.out.printf("pollN(%d):   %7.1f ms%n", BATCH_POLL_SIZE, timeBatch(elements, heap -> heap.pollN(BATCH_POLL_SIZE, results)));
+    }
+
+    // Pass "concurrent" or "batch" to only run that comparison
+    public static void main(String[] args) throws InterruptedException {
+        if (args.length > 0 && args[0].equals("concurrent")) {
+            concurrentBenchmark();
+            return;
+        }
+        if (args.length > 0 && args[0].equals("batch")) {
+            batchBenchmark();
+            return;
+        }
+
+        createGraph();
+        double expected = dijkstraPrimitive();
+
+        System.out.printf("Dijkstra on %d nodes and %d edges, D-ary heaps of degree %d%n",
+                NODE_COUNT, NODE_COUNT * EDGES_PER_NODE, DEGREE);
+        System.out.printf("MinIndexedDHeap<Double>:       %7.1f ms%n",
+                time(() -> dijkstraBoxed(new MinIndexedDHeap<>(DEGREE, NODE_COUNT)), expected));
+        System.out.printf("MinIndexedPairingHeap<Double>: %7.1f ms%n",
+                time(() -> dijkstraBoxed(new MinIndexedPairingHeap<>(NODE_COUNT)), expected));
+        System.out.printf("MinIndexedDoubleDHeap:         %7.1f ms%n",
+                time(PriorityQueueBenchmark::dijkstraPrimitive, expected));
+
+        double expectedLong = dijkstraLong(new MinIndexedLongDHeap(DEGREE, NODE_COUNT));
+        System.out.printf("%nWith integer weights%n");
+        System.out.printf("MinIndexedLongDHeap:           %7.1f ms%n",
+                time(() -> dijkstraLong(new MinIndexedLongDHeap(DEGREE, NODE_COUNT)), expectedLong));
+        System.out.printf("MinIndexedRadixHeap:           %7.1f ms%n",
+                time(() -> dijkstraLong(new MinIndexedRadixHeap(NODE_COUNT)), expectedLong));
+
+        System.out.println();
+        concurrentBenchmark();
+
+        System.out.println();
+        batchBenchmark();
+    }
+}